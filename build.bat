@@ -6,6 +6,7 @@ REM ============================================================================
 if "%1"=="run" goto :run
 if "%1"=="auto" goto :auto
 if "%1"=="test" goto :test
+if "%1"=="serve" goto :serve
 
 :build
 echo.
@@ -28,6 +29,7 @@ javac -d target\classes -encoding UTF-8 ^
     src\main\java\com\example\sequencer\io\*.java ^
     src\main\java\com\example\sequencer\utils\*.java ^
     src\main\java\com\example\sequencer\pipeline\*.java ^
+    src\main\java\com\example\sequencer\service\*.java ^
     src\main\java\com\example\sequencer\core\*.java
 
 if %errorlevel% neq 0 (
@@ -44,6 +46,7 @@ if "%1"=="" (
     echo To run the application: build.bat run
     echo To run auto-mode with HTML report: build.bat auto
     echo To test components: build.bat test
+    echo To start the vectorization service: build.bat serve
     echo.
     pause
 )
@@ -97,10 +100,10 @@ if not exist "target\classes\com\example\sequencer\core\DocumentSequencerApplica
 )
 
 REM Compile test if needed
-if not exist "target\classes\com\example\sequencer\test\ManualTest.class" (
-    echo Compiling test class...
+if not exist "target\classes\com\example\sequencer\test\StemmerEquivalenceTest.class" (
+    echo Compiling test classes...
     javac -d target\classes -encoding UTF-8 -cp target\classes ^
-        src\main\java\com\example\sequencer\test\ManualTest.java
+        src\main\java\com\example\sequencer\test\*.java
     
     if %errorlevel% neq 0 (
         echo ❌ Test compilation failed!
@@ -117,5 +120,23 @@ echo.
 
 java -cp target\classes com.example.sequencer.test.ManualTest
 echo.
+java -cp target\classes com.example.sequencer.test.StemmerEquivalenceTest
+echo.
 pause
 exit /b 0
+
+:serve
+if not exist "target\classes\com\example\sequencer\service\VectorizationServer.class" (
+    echo Building first...
+    call :build
+    if %errorlevel% neq 0 exit /b 1
+)
+
+echo.
+echo ================================================================================
+echo Vectorization Service (Ctrl+C to stop)
+echo ================================================================================
+echo.
+
+java -cp target\classes com.example.sequencer.service.VectorizationServer %2 %3
+exit /b 0
@@ -24,6 +24,7 @@ build() {
         src/main/java/com/example/sequencer/io/*.java \
         src/main/java/com/example/sequencer/utils/*.java \
         src/main/java/com/example/sequencer/pipeline/*.java \
+        src/main/java/com/example/sequencer/service/*.java \
         src/main/java/com/example/sequencer/core/*.java
 
     if [ $? -ne 0 ]; then
@@ -39,6 +40,7 @@ build() {
         echo "To run the application: ./build.sh run"
         echo "To run auto-mode with HTML report: ./build.sh auto"
         echo "To test components: ./build.sh test"
+        echo "To start the vectorization service: ./build.sh serve"
         echo ""
     fi
 }
@@ -72,10 +74,10 @@ run_test() {
     fi
 
     # Compile test if needed
-    if [ ! -f "target/classes/com/example/sequencer/test/ManualTest.class" ]; then
-        echo "Compiling test class..."
+    if [ ! -f "target/classes/com/example/sequencer/test/StemmerEquivalenceTest.class" ]; then
+        echo "Compiling test classes..."
         javac -d target/classes -encoding UTF-8 -cp target/classes \
-            src/main/java/com/example/sequencer/test/ManualTest.java
+            src/main/java/com/example/sequencer/test/*.java
         
         if [ $? -ne 0 ]; then
             echo "❌ Test compilation failed!"
@@ -91,6 +93,8 @@ run_test() {
 
     java -cp target/classes com.example.sequencer.test.ManualTest
     echo ""
+    java -cp target/classes com.example.sequencer.test.StemmerEquivalenceTest
+    echo ""
 }
 
 run_auto() {
@@ -117,6 +121,25 @@ run_auto() {
     echo ""
 }
 
+run_serve() {
+    if [ ! -f "target/classes/com/example/sequencer/service/VectorizationServer.class" ]; then
+        echo "Building first..."
+        build "skip-message"
+        if [ $? -ne 0 ]; then
+            exit 1
+        fi
+    fi
+
+    echo ""
+    echo "================================================================================"
+    echo "Vectorization Service (Ctrl+C to stop)"
+    echo "================================================================================"
+    echo ""
+
+    shift
+    java -cp target/classes com.example.sequencer.service.VectorizationServer "$@"
+}
+
 # Main script logic
 case "$1" in
     run)
@@ -128,6 +151,9 @@ case "$1" in
     test)
         run_test
         ;;
+    serve)
+        run_serve "$@"
+        ;;
     *)
         build "$1"
         ;;
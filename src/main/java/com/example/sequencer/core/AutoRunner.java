@@ -3,9 +3,12 @@ package com.example.sequencer.core;
 import com.example.sequencer.io.DocumentReader;
 import com.example.sequencer.io.SequenceWriter;
 import com.example.sequencer.io.HTMLReportWriter;
+import com.example.sequencer.io.ParallelDocumentLoader;
 import com.example.sequencer.pipeline.SequencingPipeline;
+import com.example.sequencer.pipeline.SequencingPipeline.Output;
 import com.example.sequencer.pipeline.SequencingPipeline.PipelineConfiguration;
 import com.example.sequencer.pipeline.SequencingPipeline.PipelineResult;
+import com.example.sequencer.pipeline.StreamingPipeline;
 import com.example.sequencer.utils.PerformanceMonitor;
 
 import java.io.File;
@@ -24,6 +27,11 @@ public class AutoRunner {
     private static final String OUTPUT_BASE = OUTPUT_DIR + "/output";
     
     public static void main(String[] args) {
+        if (args.length > 0 && "--streaming".equals(args[0])) {
+            runStreaming();
+            return;
+        }
+        
         PerformanceMonitor monitor = new PerformanceMonitor();
         
         try {
@@ -35,25 +43,26 @@ public class AutoRunner {
             
             // Step 1: Read files
             monitor.startOperation("1. Đọc file");
-            File inputDir = new File(INPUT_DIR);
-            File[] txtFiles = inputDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
+            List<File> txtFiles = ParallelDocumentLoader.listTextFiles(INPUT_DIR);
             
-            if (txtFiles == null || txtFiles.length == 0) {
+            if (txtFiles.isEmpty()) {
                 System.err.println("No .txt files found in " + INPUT_DIR);
                 return;
             }
             
-            System.out.println("Found " + txtFiles.length + " file(s) in " + INPUT_DIR);
+            System.out.println("Found " + txtFiles.size() + " file(s) in " + INPUT_DIR);
             
-            // Optimized: Use ArrayList with initial capacity
-            List<String> allDocuments = new ArrayList<>(txtFiles.length);
+            // Read files concurrently; results keep the sorted file order so document IDs are stable
+            ParallelDocumentLoader loader = new ParallelDocumentLoader(
+                    DocumentReader.DocumentFormat.SINGLE_DOCUMENT);
+            List<List<String>> perFile = loader.readAll(txtFiles);
+            
+            List<String> allDocuments = new ArrayList<>(txtFiles.size());
             int totalLines = 0;
             
-            for (File file : txtFiles) {
-                System.out.println("  Reading: " + file.getName());
-                DocumentReader reader = new DocumentReader(file.getPath(), 
-                        DocumentReader.DocumentFormat.SINGLE_DOCUMENT);
-                List<String> docs = reader.readDocuments();
+            for (int i = 0; i < txtFiles.size(); i++) {
+                System.out.println("  Reading: " + txtFiles.get(i).getName());
+                List<String> docs = perFile.get(i);
                 allDocuments.addAll(docs);
                 totalLines += docs.size();
             }
@@ -69,7 +78,10 @@ public class AutoRunner {
                     .setRemoveStopWords(true)
                     .setApplyStemming(false)
                     .setMinFrequency(1)
-                    .setMinTokenLength(1);
+                    .setMinTokenLength(1)
+                    .setParallelism(Runtime.getRuntime().availableProcessors())
+                    // Chỉ ghi sequences, BoW và bảng TF-IDF đủ công thức; không cần vector TF-IDF
+                    .setOutputs(Output.SEQUENCES, Output.BAG_OF_WORDS, Output.TFIDF_FORMULAS);
             
             SequencingPipeline pipeline = new SequencingPipeline(config);
             PipelineResult result = pipeline.execute(allDocuments);
@@ -104,6 +116,48 @@ public class AutoRunner {
         }
     }
     
+    /**
+     * Out-of-core mode: stream the input folder twice and write only the BoW and
+     * TF-IDF vector files, without holding the corpus in memory
+     */
+    private static void runStreaming() {
+        PerformanceMonitor monitor = new PerformanceMonitor();
+        
+        try {
+            monitor.startProcessing();
+            List<File> txtFiles = ParallelDocumentLoader.listTextFiles(INPUT_DIR);
+            if (txtFiles.isEmpty()) {
+                System.err.println("No .txt files found in " + INPUT_DIR);
+                return;
+            }
+            
+            monitor.startOperation("Streaming Pipeline");
+            PipelineConfiguration config = new PipelineConfiguration()
+                    .setLowercase(true)
+                    .setRemoveStopWords(true)
+                    .setApplyStemming(false)
+                    .setMinFrequency(1)
+                    .setMinTokenLength(1)
+                    .setParallelism(Runtime.getRuntime().availableProcessors());
+            
+            String bowPath = OUTPUT_BASE + "_bow_vectors.txt";
+            String tfidfPath = OUTPUT_BASE + "_tfidf_stream_vectors.txt";
+            StreamingPipeline.StreamingResult result = new StreamingPipeline(config)
+                    .execute(txtFiles, bowPath, tfidfPath);
+            monitor.endOperation("Streaming Pipeline");
+            monitor.endProcessing();
+            
+            result.printSummary();
+            System.out.println("BoW vectors written to: " + bowPath);
+            System.out.println("TF-IDF vectors written to: " + tfidfPath);
+            monitor.printReport();
+            
+        } catch (Exception e) {
+            System.err.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
     private static void writeOutputFiles(PipelineResult result) throws IOException {
         String sequencePath = OUTPUT_BASE + "_sequences.txt";
         SequenceWriter sequenceWriter = new SequenceWriter(sequencePath, 
@@ -3,13 +3,13 @@ package com.example.sequencer.core;
 import com.example.sequencer.io.DocumentReader;
 import com.example.sequencer.io.SequenceWriter;
 import com.example.sequencer.io.HTMLReportWriter;
+import com.example.sequencer.io.ParallelDocumentLoader;
 import com.example.sequencer.pipeline.SequencingPipeline;
 import com.example.sequencer.pipeline.SequencingPipeline.PipelineConfiguration;
 import com.example.sequencer.pipeline.SequencingPipeline.PipelineResult;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
@@ -175,18 +175,15 @@ public class DocumentSequencerApplication {
         if (!directory.exists() || !directory.isDirectory()) {
             throw new IOException("Folder not found or not a directory: " + folderPath);
         }
-        File[] txtFiles = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
-        if (txtFiles == null || txtFiles.length == 0) {
+        List<File> txtFiles = ParallelDocumentLoader.listTextFiles(folderPath);
+        if (txtFiles.isEmpty()) {
             throw new IOException("No .txt files found in folder: " + folderPath);
         }
         System.out.println("\nReading documents from folder: " + folderPath);
-        List<String> documents = new ArrayList<>();
         for (File file : txtFiles) {
             System.out.println("  • " + file.getName());
-            DocumentReader reader = new DocumentReader(file.getAbsolutePath(), format);
-            documents.addAll(reader.readDocuments());
         }
-        return documents;
+        return new ParallelDocumentLoader(format).readAllDocuments(txtFiles);
     }
 
     /**
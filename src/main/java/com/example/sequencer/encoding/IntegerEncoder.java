@@ -1,6 +1,9 @@
 package com.example.sequencer.encoding;
 
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -34,6 +37,52 @@ public class IntegerEncoder {
         return encoded;
     }
     
+    /**
+     * Encode a single document to a primitive id array (no boxing)
+     * @param tokens List of tokens
+     * @return Array of integer indices
+     */
+    public int[] encodeToArray(List<String> tokens) {
+        int[] encoded = new int[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            encoded[i++] = vocabulary.getIndex(token);
+        }
+        return encoded;
+    }
+    
+    /**
+     * Encode a document directly into a caller-supplied buffer
+     * Lets large batches be written into one preallocated (possibly direct) buffer.
+     * @param tokens List of tokens
+     * @param buffer Destination, advanced by the number of tokens
+     * @return Number of ids written
+     * @throws BufferOverflowException if the buffer has too little room
+     */
+    public int encodeInto(List<String> tokens, IntBuffer buffer) {
+        if (buffer.remaining() < tokens.size()) {
+            throw new BufferOverflowException();
+        }
+        for (String token : tokens) {
+            buffer.put(vocabulary.getIndex(token));
+        }
+        return tokens.size();
+    }
+    
+    /**
+     * Encode multiple documents to primitive id arrays
+     * @param tokenizedDocuments List of tokenized documents
+     * @return One id array per document
+     */
+    public int[][] encodeAllToArrays(List<List<String>> tokenizedDocuments) {
+        int[][] allEncoded = new int[tokenizedDocuments.size()][];
+        int i = 0;
+        for (List<String> tokens : tokenizedDocuments) {
+            allEncoded[i++] = encodeToArray(tokens);
+        }
+        return allEncoded;
+    }
+    
     /**
      * Encode multiple documents
      * Optimized for large batches
@@ -64,6 +113,19 @@ public class IntegerEncoder {
         return decoded;
     }
     
+    /**
+     * Decode a primitive id array back to tokens
+     * @param indices Array of integer indices
+     * @return List of tokens
+     */
+    public List<String> decode(int[] indices) {
+        List<String> decoded = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            decoded.add(vocabulary.getToken(index));
+        }
+        return decoded;
+    }
+    
     /**
      * Decode multiple sequences
      * Optimized for large batches
@@ -123,6 +185,44 @@ public class IntegerEncoder {
         return padded;
     }
     
+    /**
+     * Pad or truncate a primitive sequence to fixed length
+     * @param sequence Input sequence
+     * @param maxLength Target length
+     * @return New array of exactly maxLength ids
+     */
+    public int[] padSequence(int[] sequence, int maxLength) {
+        int[] padded = Arrays.copyOf(sequence, maxLength);
+        if (sequence.length < maxLength) {
+            Arrays.fill(padded, sequence.length, maxLength, vocabulary.getPaddingIndex());
+        }
+        return padded;
+    }
+    
+    /**
+     * Pad all primitive sequences to the same length
+     * @param sequences Array of sequences
+     * @param maxLength Target length (if null, uses longest sequence)
+     * @return Padded sequences
+     */
+    public int[][] padAll(int[][] sequences, Integer maxLength) {
+        int length;
+        if (maxLength != null) {
+            length = maxLength;
+        } else {
+            length = 0;
+            for (int[] sequence : sequences) {
+                length = Math.max(length, sequence.length);
+            }
+        }
+        
+        int[][] padded = new int[sequences.length][];
+        for (int i = 0; i < sequences.length; i++) {
+            padded[i] = padSequence(sequences[i], length);
+        }
+        return padded;
+    }
+    
     /**
      * Get vocabulary used by this encoder
      * @return Vocabulary instance
@@ -0,0 +1,88 @@
+package com.example.sequencer.encoding;
+
+import com.example.sequencer.model.TermTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TokenCounter - Primitive String -> int frequency table
+ * Counts are the per-id values of a {@link TermTable} (no boxed counts, no entry objects),
+ * so each worker of a parallel count can own one and the partial tables are merged afterwards.
+ * Not thread-safe.
+ */
+class TokenCounter {
+    
+    private final TermTable counts;
+    
+    TokenCounter() {
+        this(256);
+    }
+    
+    TokenCounter(int expectedSize) {
+        this.counts = new TermTable(expectedSize);
+    }
+    
+    void add(String token) {
+        add(token, 1);
+    }
+    
+    void add(String token, int count) {
+        counts.addValue(counts.intern(token), count);
+    }
+    
+    void addAll(List<String> tokens) {
+        for (String token : tokens) {
+            add(token, 1);
+        }
+    }
+    
+    /**
+     * Add all counts of another table into this one
+     * @return this
+     */
+    TokenCounter merge(TokenCounter other) {
+        for (int id = 0; id < other.counts.size(); id++) {
+            add(other.counts.getTerm(id), other.counts.getValue(id));
+        }
+        return this;
+    }
+    
+    int size() {
+        return counts.size();
+    }
+    
+    /**
+     * Tokens with count >= minFrequency, by count descending, then lexicographically
+     * The order depends only on the counts, never on hashing or merge order.
+     */
+    List<String> sortedByFrequency(int minFrequency) {
+        Entry[] entries = new Entry[counts.size()];
+        int n = 0;
+        for (int id = 0; id < counts.size(); id++) {
+            if (counts.getValue(id) >= minFrequency) {
+                entries[n++] = new Entry(counts.getTerm(id), counts.getValue(id));
+            }
+        }
+        Arrays.sort(entries, 0, n, (a, b) -> a.count != b.count
+                ? Integer.compare(b.count, a.count)
+                : a.token.compareTo(b.token));
+        
+        List<String> sorted = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            sorted.add(entries[i].token);
+        }
+        return sorted;
+    }
+    
+    private static final class Entry {
+        final String token;
+        final int count;
+        
+        Entry(String token, int count) {
+            this.token = token;
+            this.count = count;
+        }
+    }
+}
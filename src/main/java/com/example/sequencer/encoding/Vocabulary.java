@@ -1,6 +1,14 @@
 package com.example.sequencer.encoding;
 
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
+import com.example.sequencer.model.TermTable;
+
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * Vocabulary - Manages the mapping between tokens and integer indices
@@ -12,66 +20,124 @@ import java.util.*;
  */
 public class Vocabulary {
     
-    private final Map<String, Integer> tokenToIndex;
-    private final Map<Integer, String> indexToToken;
+    private static final int INITIAL_CAPACITY = 64;
+    // Số tài liệu tối thiểu mỗi phần khi đếm song song
+    private static final int MIN_DOCUMENTS_PER_CHUNK = 512;
+    
+    // Bảng băm địa chỉ mở token → id (không boxing); id dày đặc 0..n-1
+    private final TermTable tokens;
     private final int minFrequency;
     private final String unknownToken;
     private final String paddingToken;
-    private int nextIndex;
+    private int unknownIndex = -1;
+    private int paddingIndex = -1;
     
     public Vocabulary() {
         this(1, "<UNK>", "<PAD>");
     }
     
     public Vocabulary(int minFrequency, String unknownToken, String paddingToken) {
-        this.tokenToIndex = new LinkedHashMap<>();
-        this.indexToToken = new LinkedHashMap<>();
+        this.tokens = new TermTable(INITIAL_CAPACITY);
         this.minFrequency = minFrequency;
         this.unknownToken = unknownToken;
         this.paddingToken = paddingToken;
-        this.nextIndex = 0;
         
         // Reserve special tokens
-        addSpecialToken(paddingToken);
-        addSpecialToken(unknownToken);
+        this.paddingIndex = tokens.intern(paddingToken);
+        this.unknownIndex = tokens.intern(unknownToken);
     }
     
     /**
      * Build vocabulary from tokenized documents
-     * Optimized for large datasets
+     * Frequencies are counted map-reduce style: document chunks are counted in parallel
+     * into per-worker tables, which are then merged. Ids are assigned by frequency
+     * descending, ties broken lexicographically, so they are reproducible across runs.
      * @param tokenizedDocuments List of tokenized documents
      */
     public void buildFromDocuments(List<List<String>> tokenizedDocuments) {
-        // Count token frequencies - optimized with initial capacity
-        int estimatedTokens = tokenizedDocuments.size() * 100; // estimate
-        Map<String, Integer> tokenFrequencies = new HashMap<>(estimatedTokens);
-        
-        for (List<String> tokens : tokenizedDocuments) {
-            for (String token : tokens) {
-                tokenFrequencies.merge(token, 1, Integer::sum);
-            }
-        }
+        TokenCounter tokenFrequencies = countTokens(tokenizedDocuments);
         
         // Add tokens that meet minimum frequency threshold
-        // Sort by frequency descending for better cache locality
-        tokenFrequencies.entrySet().stream()
-                .filter(entry -> entry.getValue() >= minFrequency)
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .forEach(entry -> addToken(entry.getKey()));
+        for (String token : tokenFrequencies.sortedByFrequency(minFrequency)) {
+            addToken(token);
+        }
         
         System.out.println("Vocabulary built: " + getSize() + " unique tokens (min_freq=" + minFrequency + ")");
     }
     
     /**
-     * Add a special token (padding, unknown, etc.)
-     * @param token Special token string
+     * Build vocabulary from precomputed corpus statistics
+     * Uses the collection frequencies directly, with the same id order as
+     * {@link #buildFromDocuments(List)}: frequency descending, ties lexicographic.
+     * @param statistics Shared corpus statistics
+     */
+    public void buildFromStatistics(CorpusStatistics statistics) {
+        ColumnarCorpus corpus = statistics.getCorpus();
+        buildFromFrequencies(statistics.getDistinctTermCount(), corpus::getTerm, statistics::getCollectionFrequency);
+    }
+    
+    /**
+     * Build vocabulary from streamed collection frequencies
+     * Same id order as {@link #buildFromStatistics(CorpusStatistics)}, for callers that
+     * count terms document by document without keeping a corpus in memory.
+     * @param terms Distinct terms, indexed by term id
+     * @param collectionFrequencies Total occurrences of each term id
      */
-    private void addSpecialToken(String token) {
-        if (!tokenToIndex.containsKey(token)) {
-            tokenToIndex.put(token, nextIndex);
-            indexToToken.put(nextIndex, token);
-            nextIndex++;
+    public void buildFromFrequencies(List<String> terms, int[] collectionFrequencies) {
+        buildFromFrequencies(terms.size(), terms::get, term -> collectionFrequencies[term]);
+    }
+    
+    private void buildFromFrequencies(int termCount, IntFunction<String> termOf, IntUnaryOperator frequencyOf) {
+        int[] selected = new int[termCount];
+        int n = 0;
+        for (int term = 0; term < termCount; term++) {
+            if (frequencyOf.applyAsInt(term) >= minFrequency) {
+                selected[n++] = term;
+            }
         }
+        
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = selected[i];
+        }
+        Arrays.sort(order, (a, b) -> {
+            int fa = frequencyOf.applyAsInt(a);
+            int fb = frequencyOf.applyAsInt(b);
+            return fa != fb ? Integer.compare(fb, fa) : termOf.apply(a).compareTo(termOf.apply(b));
+        });
+        
+        for (Integer term : order) {
+            addToken(termOf.apply(term));
+        }
+        
+        System.out.println("Vocabulary built: " + getSize() + " unique tokens (min_freq=" + minFrequency + ")");
+    }
+    
+    private static TokenCounter countTokens(List<List<String>> tokenizedDocuments) {
+        int documents = tokenizedDocuments.size();
+        int chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4,
+                documents / MIN_DOCUMENTS_PER_CHUNK));
+        if (chunks == 1) {
+            TokenCounter counter = new TokenCounter();
+            for (List<String> tokens : tokenizedDocuments) {
+                counter.addAll(tokens);
+            }
+            return counter;
+        }
+        
+        // Map: mỗi luồng đếm một đoạn tài liệu vào bảng riêng; Reduce: gộp các bảng
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    TokenCounter local = new TokenCounter();
+                    int from = (int) ((long) documents * chunk / chunks);
+                    int to = (int) ((long) documents * (chunk + 1) / chunks);
+                    for (List<String> tokens : tokenizedDocuments.subList(from, to)) {
+                        local.addAll(tokens);
+                    }
+                    return local;
+                })
+                .reduce(TokenCounter::merge)
+                .orElseGet(TokenCounter::new);
     }
     
     /**
@@ -79,10 +145,8 @@ public class Vocabulary {
      * @param token Token to add
      */
     public void addToken(String token) {
-        if (!tokenToIndex.containsKey(token) && !token.equals(unknownToken) && !token.equals(paddingToken)) {
-            tokenToIndex.put(token, nextIndex);
-            indexToToken.put(nextIndex, token);
-            nextIndex++;
+        if (!token.equals(unknownToken) && !token.equals(paddingToken)) {
+            tokens.intern(token);
         }
     }
     
@@ -92,7 +156,8 @@ public class Vocabulary {
      * @return Index (or unknown token index if not in vocabulary)
      */
     public int getIndex(String token) {
-        return tokenToIndex.getOrDefault(token, tokenToIndex.get(unknownToken));
+        int index = token == null ? -1 : tokens.lookup(token);
+        return index >= 0 ? index : unknownIndex;
     }
     
     /**
@@ -101,7 +166,7 @@ public class Vocabulary {
      * @return Token string
      */
     public String getToken(int index) {
-        return indexToToken.getOrDefault(index, unknownToken);
+        return index >= 0 && index < tokens.size() ? tokens.getTerm(index) : unknownToken;
     }
     
     /**
@@ -110,7 +175,7 @@ public class Vocabulary {
      * @return true if token exists
      */
     public boolean contains(String token) {
-        return tokenToIndex.containsKey(token);
+        return token != null && tokens.lookup(token) >= 0;
     }
     
     /**
@@ -118,7 +183,7 @@ public class Vocabulary {
      * @return Number of unique tokens
      */
     public int getSize() {
-        return tokenToIndex.size();
+        return tokens.size();
     }
     
     /**
@@ -126,7 +191,7 @@ public class Vocabulary {
      * @return Index of unknown token
      */
     public int getUnknownIndex() {
-        return tokenToIndex.get(unknownToken);
+        return unknownIndex;
     }
     
     /**
@@ -134,15 +199,31 @@ public class Vocabulary {
      * @return Index of padding token
      */
     public int getPaddingIndex() {
-        return tokenToIndex.get(paddingToken);
+        return paddingIndex;
     }
     
     /**
      * Get all tokens in vocabulary
-     * @return Set of all tokens
+     * @return Read-only set view of all tokens, in index order
      */
     public Set<String> getAllTokens() {
-        return tokenToIndex.keySet();
+        List<String> inOrder = tokens.asList();
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return inOrder.iterator();
+            }
+            
+            @Override
+            public int size() {
+                return inOrder.size();
+            }
+            
+            @Override
+            public boolean contains(Object o) {
+                return inOrder.contains(o);
+            }
+        };
     }
     
     /**
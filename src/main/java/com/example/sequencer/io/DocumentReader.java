@@ -1,13 +1,26 @@
 package com.example.sequencer.io;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * DocumentReader - Reads documents from various file formats
@@ -15,6 +28,9 @@ import java.util.List;
  */
 public class DocumentReader {
     
+    // Kích thước mỗi vùng ánh xạ bộ nhớ khi đọc dạng streaming
+    private static final int MAPPING_REGION_SIZE = 64 * 1024 * 1024;
+    
     private final String filePath;
     private final DocumentFormat format;
     
@@ -57,6 +73,27 @@ public class DocumentReader {
         }
     }
     
+    /**
+     * Stream documents lazily from a memory-mapped view of the file
+     * Heap usage is bounded by the largest single document instead of the file size,
+     * so processing can start before the whole file has been read.
+     * The returned stream must be closed to release the underlying file channel.
+     * @return Lazy stream of document strings
+     * @throws IOException if the file cannot be opened
+     */
+    public Stream<String> streamDocuments() throws IOException {
+        Path path = Paths.get(filePath);
+        
+        if (!Files.exists(path)) {
+            throw new IOException("File not found: " + filePath);
+        }
+        
+        MappedDocumentIterator iterator = new MappedDocumentIterator(path, format);
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::closeQuietly);
+    }
+    
     /**
      * Read entire file as single document
      * @return List containing single document
@@ -138,4 +175,174 @@ public class DocumentReader {
     public long getFileSize() throws IOException {
         return Files.size(Paths.get(filePath));
     }
+    
+    /**
+     * Iterates documents over a memory-mapped file without loading it into the heap
+     * Lines are split on raw '\n' / '\r' bytes (same terminators as BufferedReader.readLine),
+     * which is safe for the ASCII-compatible platform encodings FileReader uses.
+     */
+    private static class MappedDocumentIterator implements Iterator<String>, Closeable {
+        
+        private final FileChannel channel;
+        private final long fileSize;
+        private final DocumentFormat format;
+        private final Charset charset;
+        
+        private MappedByteBuffer region;
+        private long regionStart;
+        private long position;
+        private byte[] lineBuffer;
+        private String nextDocument;
+        private boolean wholeFileRead;
+        private boolean finished;
+        
+        MappedDocumentIterator(Path path, DocumentFormat format) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+            this.format = format;
+            this.charset = Charset.defaultCharset();
+            this.lineBuffer = new byte[256];
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (nextDocument == null && !finished) {
+                try {
+                    nextDocument = readNextDocument();
+                } catch (IOException e) {
+                    closeQuietly();
+                    throw new UncheckedIOException(e);
+                }
+                if (nextDocument == null) {
+                    finished = true;
+                    closeQuietly();
+                }
+            }
+            return nextDocument != null;
+        }
+        
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String document = nextDocument;
+            nextDocument = null;
+            return document;
+        }
+        
+        private String readNextDocument() throws IOException {
+            switch (format) {
+                case SINGLE_DOCUMENT:
+                    return readWholeFile();
+                case LINE_PER_DOCUMENT:
+                    String line;
+                    while ((line = readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty()) {
+                            return line;
+                        }
+                    }
+                    return null;
+                case PARAGRAPH_PER_DOCUMENT:
+                    return readParagraph();
+                default:
+                    throw new IllegalStateException("Unknown format: " + format);
+            }
+        }
+        
+        /**
+         * Đọc một đoạn văn (các dòng liên tiếp, ngăn cách bởi dòng trống)
+         */
+        private String readParagraph() throws IOException {
+            StringBuilder currentParagraph = new StringBuilder();
+            String line;
+            while ((line = readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    if (currentParagraph.length() > 0) {
+                        return currentParagraph.toString().trim();
+                    }
+                } else {
+                    currentParagraph.append(line).append(" ");
+                }
+            }
+            return currentParagraph.length() > 0 ? currentParagraph.toString().trim() : null;
+        }
+        
+        private String readWholeFile() throws IOException {
+            if (wholeFileRead) {
+                return null;
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("File too large for a single document: " + fileSize + " bytes");
+            }
+            MappedByteBuffer whole = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            wholeFileRead = true;
+            return charset.decode(whole).toString();
+        }
+        
+        /**
+         * Read the next line, mapping further regions of the file as needed
+         * @return Decoded line without terminator, or null at end of file
+         */
+        private String readLine() throws IOException {
+            if (position >= fileSize) {
+                return null;
+            }
+            
+            int length = 0;
+            long cursor = position;
+            while (cursor < fileSize) {
+                byte b = byteAt(cursor);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                if (length == lineBuffer.length) {
+                    if (length == Integer.MAX_VALUE - 8) {
+                        throw new IOException("Line too long at offset " + position);
+                    }
+                    lineBuffer = Arrays.copyOf(lineBuffer,
+                            (int) Math.min((long) length * 2, Integer.MAX_VALUE - 8));
+                }
+                lineBuffer[length++] = b;
+                cursor++;
+            }
+            
+            // Bỏ qua ký tự kết thúc dòng: \n, \r hoặc \r\n
+            if (cursor < fileSize) {
+                byte terminator = byteAt(cursor);
+                cursor++;
+                if (terminator == '\r' && cursor < fileSize && byteAt(cursor) == '\n') {
+                    cursor++;
+                }
+            }
+            position = cursor;
+            return new String(lineBuffer, 0, length, charset);
+        }
+        
+        private byte byteAt(long offset) throws IOException {
+            if (region == null || offset < regionStart || offset >= regionStart + region.limit()) {
+                long size = Math.min(MAPPING_REGION_SIZE, fileSize - offset);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                regionStart = offset;
+            }
+            return region.get((int) (offset - regionStart));
+        }
+        
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException e) {
+                // Ignore - stream is already exhausted or being discarded
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            region = null;
+            if (channel.isOpen()) {
+                channel.close();
+            }
+        }
+    }
 }
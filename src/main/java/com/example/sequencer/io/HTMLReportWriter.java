@@ -1,6 +1,7 @@
 package com.example.sequencer.io;
 
-import com.example.sequencer.model.DocumentSequence;
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
 import com.example.sequencer.model.SequenceVector;
 import com.example.sequencer.pipeline.SequencingPipeline.PipelineResult;
 import com.example.sequencer.encoding.Vocabulary;
@@ -10,9 +11,8 @@ import com.example.sequencer.vectorization.IDFFormula;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 
 public class HTMLReportWriter {
     
@@ -185,10 +185,9 @@ public class HTMLReportWriter {
     }
     
     private String getStats() {
-        int tot = 0;
-        for (DocumentSequence s : result.getSequences()) tot += s.getTokens().size();
+        int tot = result.getCorpusStatistics().getCorpus().getTokenCount();
         return "<div class='st'>" +
-               "<div class='stat'><div class='l'>Documents</div><div class='val'>" + result.getSequences().size() + "</div></div>" +
+               "<div class='stat'><div class='l'>Documents</div><div class='val'>" + result.getDocumentCount() + "</div></div>" +
                "<div class='stat'><div class='l'>Vocabulary</div><div class='val'>" + result.getVocabulary().getSize() + "</div></div>" +
                "<div class='stat'><div class='l'>Tokens</div><div class='val'>" + tot + "</div></div>" +
                "</div>";
@@ -197,11 +196,10 @@ public class HTMLReportWriter {
     private String getDocCards() {
         StringBuilder sb = new StringBuilder();
         sb.append("<h2>Documents</h2>");
-        int lim = Math.min(50, result.getSequences().size());
+        int lim = Math.min(50, result.getDocumentCount());
         for (int i = 0; i < lim; i++) {
-            DocumentSequence seq = result.getSequences().get(i);
             String orig = i < originalDocs.size() ? esc(originalDocs.get(i)) : "";
-            String proc = esc((String) seq.getMetadata().getOrDefault("preprocessed", ""));
+            String proc = esc(result.getPreprocessedText(i));
             sb.append("<div class='dc'><h3>Doc ").append(i+1).append("</h3>");
             sb.append("<div class='dt'>");
             sb.append("<label><input type='radio' name='v").append(i).append("' checked onclick='tog(").append(i).append(",0)'>Original</label> ");
@@ -211,8 +209,8 @@ public class HTMLReportWriter {
             sb.append("<div class='dtc' id='p").append(i).append("' style='display:none'>").append(proc).append("</div>");
             sb.append("</div>");
         }
-        if (result.getSequences().size() > 50) {
-            sb.append("<p style='text-align:center;color:#6c757d'>Showing first 50 of ").append(result.getSequences().size()).append("</p>");
+        if (result.getDocumentCount() > 50) {
+            sb.append("<p style='text-align:center;color:#6c757d'>Showing first 50 of ").append(result.getDocumentCount()).append("</p>");
         }
         return sb.toString();
     }
@@ -220,27 +218,45 @@ public class HTMLReportWriter {
     private String getData() {
         StringBuilder sb = new StringBuilder();
         Vocabulary vocab = result.getVocabulary();
-        List<DocumentSequence> seqs = result.getSequences();
         TFIDFCalculator calculator = result.getTfidfCalculator();
-        int totalDocs = seqs.size();
+        CorpusStatistics stats = result.getCorpusStatistics();
+        int totalDocs = result.getDocumentCount();
+        
+        // Term id của corpus -> id trong vocabulary (token ngoài vocabulary tính vào <UNK>)
+        ColumnarCorpus corpus = stats.getCorpus();
+        int[] vocabIdOf = new int[corpus.getDistinctTermCount()];
+        for (int t = 0; t < vocabIdOf.length; t++) {
+            vocabIdOf[t] = vocab.getIndex(corpus.getTerm(t));
+        }
+        int[] termOffsets = stats.getDocumentTermOffsets();
+        int[] terms = stats.getDocumentTerms();
+        int[] counts = stats.getDocumentTermCounts();
+        int[] fm = new int[vocab.getSize()];
+        
+        // Mọi công thức đều được đọc hết, nên tính theo lô một lần trước khi ghi
+        for (TFFormula formula : TFFormula.values()) {
+            calculator.materialize(formula);
+        }
+        for (IDFFormula formula : IDFFormula.values()) {
+            calculator.materialize(formula);
+        }
         
         sb.append("const D={m:[");
-        for (int i = 0; i < seqs.size(); i++) {
+        for (int i = 0; i < totalDocs; i++) {
             if (i > 0) sb.append(",");
-            Map<Integer, Integer> fm = new HashMap<>();
-            for (String t : seqs.get(i).getTokens()) {
-                int id = vocab.getIndex(t);
-                fm.put(id, fm.getOrDefault(id, 0) + 1);
+            Arrays.fill(fm, 0);
+            for (int j = termOffsets[i]; j < termOffsets[i + 1]; j++) {
+                fm[vocabIdOf[terms[j]]] += counts[j];
             }
             sb.append("[");
             for (int j = 0; j < vocab.getSize(); j++) {
                 if (j > 0) sb.append(",");
-                sb.append(fm.getOrDefault(j, 0));
+                sb.append(fm[j]);
             }
             sb.append("]");
         }
         sb.append("],docTotals:[");
-        for (int i = 0; i < seqs.size(); i++) {
+        for (int i = 0; i < totalDocs; i++) {
             if (i > 0) sb.append(",");
             sb.append(calculator.getTotalTermsInDocument(i));
         }
@@ -250,7 +266,7 @@ public class HTMLReportWriter {
             sb.append(calculator.getDocumentFrequency(i));
         }
         sb.append("],termMaxCount:[");
-        for (int docIdx = 0; docIdx < seqs.size(); docIdx++) {
+        for (int docIdx = 0; docIdx < totalDocs; docIdx++) {
             if (docIdx > 0) sb.append(",");
             sb.append(calculator.getMaxTermCountInDocument(docIdx));
         }
@@ -0,0 +1,158 @@
+package com.example.sequencer.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ParallelDocumentLoader - Reads many small files concurrently
+ * Folder ingestion is dominated by per-file open latency, so files are read on a
+ * bounded pool (virtual threads when the JVM provides them) while the results are
+ * returned in the order of the sorted file list, keeping document IDs stable.
+ */
+public class ParallelDocumentLoader {
+
+    private final DocumentReader.DocumentFormat format;
+    private final int maxConcurrency;
+
+    public ParallelDocumentLoader(DocumentReader.DocumentFormat format) {
+        this(format, defaultConcurrency());
+    }
+
+    public ParallelDocumentLoader(DocumentReader.DocumentFormat format, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.format = format;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * List all .txt files in a folder, sorted by file name
+     * @param folderPath Folder to scan
+     * @return Sorted list of text files (empty if none)
+     */
+    public static List<File> listTextFiles(String folderPath) {
+        File[] txtFiles = new File(folderPath).listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
+        if (txtFiles == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(txtFiles, Comparator.comparing(File::getName));
+        return Arrays.asList(txtFiles);
+    }
+
+    /**
+     * Read all files concurrently
+     * @param files Files to read
+     * @return Documents of each file, in the same order as the input list
+     * @throws IOException if any file fails to read
+     */
+    public List<List<String>> readAll(List<File> files) throws IOException {
+        if (files.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        ExecutorService executor = createExecutor(Math.min(maxConcurrency, files.size()));
+        // Giới hạn số file mở đồng thời (cần thiết khi dùng virtual thread)
+        Semaphore openFiles = new Semaphore(maxConcurrency);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>(files.size());
+            for (File file : files) {
+                futures.add(executor.submit(readTask(file, openFiles)));
+            }
+
+            List<List<String>> results = new ArrayList<>(files.size());
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(await(futures.get(i), files.get(i)));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read all files concurrently and concatenate their documents
+     * @param files Files to read
+     * @return All documents in sorted-file order
+     * @throws IOException if any file fails to read
+     */
+    public List<String> readAllDocuments(List<File> files) throws IOException {
+        List<List<String>> perFile = readAll(files);
+        int total = 0;
+        for (List<String> docs : perFile) {
+            total += docs.size();
+        }
+        List<String> documents = new ArrayList<>(total);
+        for (List<String> docs : perFile) {
+            documents.addAll(docs);
+        }
+        return documents;
+    }
+
+    private Callable<List<String>> readTask(File file, Semaphore openFiles) {
+        return () -> {
+            openFiles.acquire();
+            try {
+                return new DocumentReader(file.getPath(), format).readDocuments();
+            } finally {
+                openFiles.release();
+            }
+        };
+    }
+
+    private List<String> await(Future<List<String>> future, File file) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + file.getName());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to read " + file.getName(), cause);
+        }
+    }
+
+    /**
+     * Use virtual threads when available (Java 21+), otherwise a fixed daemon pool
+     */
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "document-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static int defaultConcurrency() {
+        // Đọc file bị giới hạn bởi I/O nên dùng nhiều luồng hơn số lõi CPU
+        return Math.min(64, Math.max(4, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
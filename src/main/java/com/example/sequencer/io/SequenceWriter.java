@@ -1,5 +1,7 @@
 package com.example.sequencer.io;
 
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
 import com.example.sequencer.model.DocumentSequence;
 import com.example.sequencer.model.SequenceVector;
 import com.example.sequencer.vectorization.TFIDFCalculator;
@@ -7,10 +9,12 @@ import com.example.sequencer.vectorization.TFFormula;
 import com.example.sequencer.vectorization.IDFFormula;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -74,20 +78,73 @@ public class SequenceWriter {
      * @throws IOException if writing fails
      */
     public void writeVectors(List<SequenceVector> vectors) throws IOException {
+        try (VectorStream stream = openVectorStream()) {
+            for (SequenceVector vector : vectors) {
+                stream.write(vector);
+            }
+        }
+    }
+    
+    /**
+     * Open the vector file for incremental writing
+     * Vectors are written one at a time as they are produced, so the caller never
+     * needs the whole list in memory. The file format is the same as {@link #writeVectors(List)};
+     * the total line is written when the stream is closed.
+     * @return Open vector stream
+     * @throws IOException if the file cannot be created
+     */
+    public VectorStream openVectorStream() throws IOException {
         // Create parent directory if it exists and doesn't already exist
         if (Paths.get(outputPath).getParent() != null) {
             Files.createDirectories(Paths.get(outputPath).getParent());
         }
         
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath))) {
-            writer.write("=== DOCUMENT SEQUENCE VECTORS ===\n\n");
-            
-            for (SequenceVector vector : vectors) {
-                writer.write(vector.toFormattedString(10));
-                writer.write("\n" + "=".repeat(80) + "\n\n");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath));
+        writer.write("=== DOCUMENT SEQUENCE VECTORS ===\n\n");
+        return new VectorStream(writer);
+    }
+    
+    /**
+     * Incremental writer for sequence vectors, see {@link #openVectorStream()}
+     */
+    public static class VectorStream implements Closeable {
+        private final BufferedWriter writer;
+        private int count;
+        private boolean closed;
+        
+        private VectorStream(BufferedWriter writer) {
+            this.writer = writer;
+        }
+        
+        /**
+         * Append one vector to the file
+         * @param vector Sequence vector
+         * @throws IOException if writing fails
+         */
+        public void write(SequenceVector vector) throws IOException {
+            writer.write(vector.toFormattedString(10));
+            writer.write("\n" + "=".repeat(80) + "\n\n");
+            count++;
+        }
+        
+        /**
+         * Number of vectors written so far
+         */
+        public int getCount() {
+            return count;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writer.write("Total Documents: " + count + "\n");
+            } finally {
+                writer.close();
             }
-            
-            writer.write("Total Documents: " + vectors.size() + "\n");
         }
     }
     
@@ -129,8 +186,35 @@ public class SequenceWriter {
             
             writer.write("=".repeat(100) + "\n\n");
             
+            // Raw counts come from the shared corpus statistics, one dense row per document
+            CorpusStatistics stats = calculator.getCorpusStatistics();
+            ColumnarCorpus corpus = stats.getCorpus();
+            int[] vocabIdOf = new int[corpus.getDistinctTermCount()];
+            for (int t = 0; t < vocabIdOf.length; t++) {
+                vocabIdOf[t] = calculator.getTokenIndex(corpus.getTerm(t));
+            }
+            int[] termOffsets = stats.getDocumentTermOffsets();
+            int[] terms = stats.getDocumentTerms();
+            int[] counts = stats.getDocumentTermCounts();
+            int[] row = new int[calculator.getVocabularySize()];
+            
+            // Mọi công thức đều được đọc hết, nên tính theo lô một lần trước khi ghi
+            for (TFFormula formula : TFFormula.values()) {
+                calculator.materialize(formula);
+            }
+            for (IDFFormula formula : IDFFormula.values()) {
+                calculator.materialize(formula);
+            }
+            
             // Write detailed results for each document
             for (int docIdx = 0; docIdx < calculator.getTotalDocuments(); docIdx++) {
+                Arrays.fill(row, 0);
+                for (int j = termOffsets[docIdx]; j < termOffsets[docIdx + 1]; j++) {
+                    if (vocabIdOf[terms[j]] >= 0) {
+                        row[vocabIdOf[terms[j]]] = counts[j];
+                    }
+                }
+                
                 writer.write("╔" + "═".repeat(98) + "╗\n");
                 writer.write(String.format("║ DOCUMENT %d%s║\n", 
                     docIdx + 1, " ".repeat(88 - String.valueOf(docIdx + 1).length())));
@@ -145,7 +229,7 @@ public class SequenceWriter {
                 boolean hasTerms = false;
                 for (int termIdx = 0; termIdx < calculator.getVocabularySize(); termIdx++) {
                     String token = calculator.getToken(termIdx);
-                    int termCount = calculator.getTermCount(docIdx, token);
+                    int termCount = row[termIdx];
                     
                     if (termCount > 0) {
                         hasTerms = true;
@@ -213,10 +297,10 @@ public class SequenceWriter {
     private void writeAsNumericSequences(List<DocumentSequence> sequences) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath))) {
             for (DocumentSequence seq : sequences) {
-                List<Integer> intSeq = seq.getIntegerSequence();
-                for (int i = 0; i < intSeq.size(); i++) {
-                    writer.write(String.valueOf(intSeq.get(i)));
-                    if (i < intSeq.size() - 1) {
+                int[] intSeq = seq.getIntegerArray();
+                for (int i = 0; i < intSeq.length; i++) {
+                    writer.write(String.valueOf(intSeq[i]));
+                    if (i < intSeq.length - 1) {
                         writer.write(" ");
                     }
                 }
@@ -238,7 +322,7 @@ public class SequenceWriter {
                 writer.write(seq.getTokenCount() + ",");
                 writer.write(seq.getSequenceLength() + ",");
                 writer.write(escapeCsv(seq.getTokens().toString()) + ",");
-                writer.write(escapeCsv(seq.getIntegerSequence().toString()));
+                writer.write(escapeCsv(Arrays.toString(seq.getIntegerArray())));
                 writer.write("\n");
             }
         }
@@ -259,7 +343,7 @@ public class SequenceWriter {
                 writer.write("      \"token_count\": " + seq.getTokenCount() + ",\n");
                 writer.write("      \"sequence_length\": " + seq.getSequenceLength() + ",\n");
                 writer.write("      \"tokens\": " + listToJsonArray(seq.getTokens()) + ",\n");
-                writer.write("      \"integer_sequence\": " + seq.getIntegerSequence() + ",\n");
+                writer.write("      \"integer_sequence\": " + Arrays.toString(seq.getIntegerArray()) + ",\n");
                 writer.write("      \"metadata\": " + mapToJson(seq.getMetadata()) + "\n");
                 writer.write("    }");
                 
@@ -0,0 +1,146 @@
+package com.example.sequencer.model;
+
+import java.util.*;
+
+/**
+ * ColumnarCorpus - Column-oriented view of a tokenized corpus
+ * All tokens live in one flat int[] of term ids; document d spans
+ * tokenIds[offsets[d] .. offsets[d + 1]) and has lengths[d] tokens.
+ *
+ * Term ids follow first appearance over the whole corpus, which is also the
+ * feature order of the BoW and TF-IDF vectorizers. The corpus is built once
+ * and then scanned by every vectorizer without touching the String tokens.
+ */
+public final class ColumnarCorpus {
+
+    private final String[] terms;
+    private final TermTable termIndex;
+    private final int[] tokenIds;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    private ColumnarCorpus(String[] terms, TermTable termIndex,
+                           int[] tokenIds, int[] offsets, int[] lengths) {
+        this.terms = terms;
+        this.termIndex = termIndex;
+        this.tokenIds = tokenIds;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Build the columnar corpus from tokenized documents
+     * @param tokenizedDocuments List of tokenized documents
+     * @return Columnar corpus
+     */
+    public static ColumnarCorpus fromDocuments(List<List<String>> tokenizedDocuments) {
+        int documentCount = tokenizedDocuments.size();
+        int[] offsets = new int[documentCount + 1];
+        int[] lengths = new int[documentCount];
+        for (int d = 0; d < documentCount; d++) {
+            lengths[d] = tokenizedDocuments.get(d).size();
+            offsets[d + 1] = offsets[d] + lengths[d];
+        }
+
+        int[] tokenIds = new int[offsets[documentCount]];
+        TermTable termIndex = new TermTable();
+        int position = 0;
+        for (List<String> tokens : tokenizedDocuments) {
+            for (String token : tokens) {
+                tokenIds[position++] = termIndex.intern(token);
+            }
+        }
+
+        return new ColumnarCorpus(termIndex.toArray(), termIndex, tokenIds, offsets, lengths);
+    }
+
+    public int getDocumentCount() {
+        return lengths.length;
+    }
+
+    public int getTokenCount() {
+        return tokenIds.length;
+    }
+
+    /**
+     * Number of distinct terms
+     */
+    public int getDistinctTermCount() {
+        return terms.length;
+    }
+
+    public String getTerm(int termId) {
+        return terms[termId];
+    }
+
+    /**
+     * Term id of a token
+     * @param term Token to look up
+     * @return Term id, or -1 if the token does not occur in the corpus
+     */
+    public int indexOf(String term) {
+        return termIndex.lookup(term);
+    }
+
+    /**
+     * Read-only list of all terms in term id order
+     */
+    public List<String> getTerms() {
+        return Collections.unmodifiableList(Arrays.asList(terms));
+    }
+
+    /**
+     * Flat token id column
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getTokenIds() {
+        return tokenIds;
+    }
+
+    /**
+     * Document start offsets into the token id column (documentCount + 1 entries)
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Document length column
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    public int getOffset(int documentIndex) {
+        return offsets[documentIndex];
+    }
+
+    public int getLength(int documentIndex) {
+        return lengths[documentIndex];
+    }
+
+    /**
+     * Tokens of one document, rebuilt from the term ids
+     * @param documentIndex Index of the document
+     * @return List of tokens
+     */
+    public List<String> getDocument(int documentIndex) {
+        int start = offsets[documentIndex];
+        List<String> tokens = new ArrayList<>(lengths[documentIndex]);
+        for (int i = start; i < start + lengths[documentIndex]; i++) {
+            tokens.add(terms[tokenIds[i]]);
+        }
+        return tokens;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarCorpus{" +
+                "documents=" + getDocumentCount() +
+                ", tokens=" + getTokenCount() +
+                ", terms=" + getDistinctTermCount() +
+                '}';
+    }
+}
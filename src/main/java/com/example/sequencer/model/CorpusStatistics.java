@@ -0,0 +1,210 @@
+package com.example.sequencer.model;
+
+import java.util.Arrays;
+
+/**
+ * CorpusStatistics - Term statistics of a columnar corpus, computed in one pass
+ * Holds per-document term counts, totals and max counts, plus document and
+ * collection frequencies per term id. Vocabulary, vectorizers and writers all
+ * read from the same instance instead of recounting the tokens.
+ *
+ * Per-document counts are stored CSR style: the distinct terms of document d are
+ * documentTerms[documentTermOffsets[d] .. documentTermOffsets[d + 1]), sorted by
+ * term id, with their counts at the same positions in documentTermCounts.
+ */
+public final class CorpusStatistics {
+
+    private final ColumnarCorpus corpus;
+    private final int[] documentTermOffsets;
+    private final int[] documentTerms;
+    private final int[] documentTermCounts;
+    private final int[] documentMaxTermCounts;
+    private final int[] documentFrequencies;
+    private final int[] collectionFrequencies;
+    private final int maxDocumentFrequency;
+
+    private CorpusStatistics(ColumnarCorpus corpus, int[] documentTermOffsets, int[] documentTerms,
+                             int[] documentTermCounts, int[] documentMaxTermCounts,
+                             int[] documentFrequencies, int[] collectionFrequencies,
+                             int maxDocumentFrequency) {
+        this.corpus = corpus;
+        this.documentTermOffsets = documentTermOffsets;
+        this.documentTerms = documentTerms;
+        this.documentTermCounts = documentTermCounts;
+        this.documentMaxTermCounts = documentMaxTermCounts;
+        this.documentFrequencies = documentFrequencies;
+        this.collectionFrequencies = collectionFrequencies;
+        this.maxDocumentFrequency = maxDocumentFrequency;
+    }
+
+    /**
+     * Compute all statistics with a single scan of the token id column
+     * @param corpus Columnar corpus
+     * @return Corpus statistics
+     */
+    public static CorpusStatistics of(ColumnarCorpus corpus) {
+        int documentCount = corpus.getDocumentCount();
+        int termCount = corpus.getDistinctTermCount();
+        int[] tokenIds = corpus.getTokenIds();
+
+        int[] counts = new int[termCount];
+        int[] documentTermOffsets = new int[documentCount + 1];
+        int[] documentTerms = new int[Math.max(16, termCount)];
+        int[] documentTermCounts = new int[documentTerms.length];
+        int[] documentMaxTermCounts = new int[documentCount];
+        int[] documentFrequencies = new int[termCount];
+        int[] collectionFrequencies = new int[termCount];
+        int maxDocumentFrequency = 0;
+        int size = 0;
+
+        for (int d = 0; d < documentCount; d++) {
+            int start = corpus.getOffset(d);
+            int end = start + corpus.getLength(d);
+            int first = size;
+
+            for (int i = start; i < end; i++) {
+                int term = tokenIds[i];
+                if (counts[term]++ == 0) {
+                    if (size == documentTerms.length) {
+                        documentTerms = Arrays.copyOf(documentTerms, size * 2);
+                    }
+                    documentTerms[size++] = term;
+                }
+            }
+
+            // Sắp xếp term id trong tài liệu để tra cứu bằng tìm kiếm nhị phân
+            Arrays.sort(documentTerms, first, size);
+            if (documentTermCounts.length < documentTerms.length) {
+                documentTermCounts = Arrays.copyOf(documentTermCounts, documentTerms.length);
+            }
+
+            int maxCount = 0;
+            for (int j = first; j < size; j++) {
+                int term = documentTerms[j];
+                int count = counts[term];
+                counts[term] = 0;
+                documentTermCounts[j] = count;
+                maxCount = Math.max(maxCount, count);
+                collectionFrequencies[term] += count;
+                maxDocumentFrequency = Math.max(maxDocumentFrequency, ++documentFrequencies[term]);
+            }
+
+            documentMaxTermCounts[d] = maxCount;
+            documentTermOffsets[d + 1] = size;
+        }
+
+        return new CorpusStatistics(corpus, documentTermOffsets,
+                Arrays.copyOf(documentTerms, size), Arrays.copyOf(documentTermCounts, size),
+                documentMaxTermCounts, documentFrequencies, collectionFrequencies, maxDocumentFrequency);
+    }
+
+    public ColumnarCorpus getCorpus() {
+        return corpus;
+    }
+
+    public int getDocumentCount() {
+        return corpus.getDocumentCount();
+    }
+
+    /**
+     * Number of distinct terms in the corpus
+     */
+    public int getDistinctTermCount() {
+        return corpus.getDistinctTermCount();
+    }
+
+    /**
+     * Raw count of a term in a document
+     * @param documentIndex Index of the document
+     * @param termId Corpus term id
+     * @return Count (0 if the term does not occur in the document)
+     */
+    public int getTermCount(int documentIndex, int termId) {
+        int position = Arrays.binarySearch(documentTerms,
+                documentTermOffsets[documentIndex], documentTermOffsets[documentIndex + 1], termId);
+        return position >= 0 ? documentTermCounts[position] : 0;
+    }
+
+    public int getTotalTerms(int documentIndex) {
+        return corpus.getLength(documentIndex);
+    }
+
+    public int getMaxTermCount(int documentIndex) {
+        return documentMaxTermCounts[documentIndex];
+    }
+
+    /**
+     * Number of documents containing a term
+     */
+    public int getDocumentFrequency(int termId) {
+        return documentFrequencies[termId];
+    }
+
+    /**
+     * Total occurrences of a term over the whole corpus
+     */
+    public int getCollectionFrequency(int termId) {
+        return collectionFrequencies[termId];
+    }
+
+    public int getMaxDocumentFrequency() {
+        return maxDocumentFrequency;
+    }
+
+    /**
+     * Number of distinct terms in a document
+     */
+    public int getDocumentDistinctTermCount(int documentIndex) {
+        return documentTermOffsets[documentIndex + 1] - documentTermOffsets[documentIndex];
+    }
+
+    /**
+     * Start of a document's distinct terms in the CSR columns (documentCount + 1 entries)
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getDocumentTermOffsets() {
+        return documentTermOffsets;
+    }
+
+    /**
+     * Distinct term ids of every document, sorted within each document
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getDocumentTerms() {
+        return documentTerms;
+    }
+
+    /**
+     * Counts matching {@link #getDocumentTerms()} position by position
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getDocumentTermCounts() {
+        return documentTermCounts;
+    }
+
+    /**
+     * Max term count of every document
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getMaxTermCounts() {
+        return documentMaxTermCounts;
+    }
+
+    /**
+     * Document frequency of every term id
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getDocumentFrequencies() {
+        return documentFrequencies;
+    }
+
+    @Override
+    public String toString() {
+        return "CorpusStatistics{" +
+                "documents=" + getDocumentCount() +
+                ", terms=" + getDistinctTermCount() +
+                ", nonZero=" + documentTerms.length +
+                ", maxDocumentFrequency=" + maxDocumentFrequency +
+                '}';
+    }
+}
@@ -13,7 +13,7 @@ public class DocumentSequence {
     private final String documentId;
     private final String originalText;
     private final List<String> tokens;
-    private final List<Integer> integerSequence;
+    private final int[] integerSequence;
     private final Map<String, Object> metadata;
     
     private DocumentSequence(Builder builder) {
@@ -36,8 +36,19 @@ public class DocumentSequence {
         return new ArrayList<>(tokens);
     }
     
+    /**
+     * Read-only List view of the integer sequence (boxes on access, no copy)
+     */
     public List<Integer> getIntegerSequence() {
-        return new ArrayList<>(integerSequence);
+        return new IntListView(integerSequence != null ? integerSequence : new int[0]);
+    }
+    
+    /**
+     * Integer sequence as a primitive array
+     * Returned without copying; callers must not modify it.
+     */
+    public int[] getIntegerArray() {
+        return integerSequence != null ? integerSequence : new int[0];
     }
     
     public Map<String, Object> getMetadata() {
@@ -45,7 +56,7 @@ public class DocumentSequence {
     }
     
     public int getSequenceLength() {
-        return integerSequence != null ? integerSequence.size() : 0;
+        return integerSequence != null ? integerSequence.length : 0;
     }
     
     public int getTokenCount() {
@@ -72,7 +83,7 @@ public class DocumentSequence {
         sb.append("Token Count: ").append(getTokenCount()).append("\n");
         sb.append("Tokens: ").append(tokens).append("\n");
         sb.append("Sequence Length: ").append(getSequenceLength()).append("\n");
-        sb.append("Integer Sequence: ").append(integerSequence).append("\n");
+        sb.append("Integer Sequence: ").append(Arrays.toString(integerSequence)).append("\n");
         
         if (!metadata.isEmpty()) {
             sb.append("Metadata:\n");
@@ -84,6 +95,27 @@ public class DocumentSequence {
         return sb.toString();
     }
     
+    /**
+     * Unmodifiable List<Integer> backed by an int[]
+     */
+    private static final class IntListView extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+        
+        IntListView(int[] values) {
+            this.values = values;
+        }
+        
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+        
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+    
     /**
      * Builder for DocumentSequence
      */
@@ -91,7 +123,7 @@ public class DocumentSequence {
         private String documentId;
         private String originalText;
         private List<String> tokens;
-        private List<Integer> integerSequence;
+        private int[] integerSequence;
         private Map<String, Object> metadata = new LinkedHashMap<>();
         
         public Builder documentId(String documentId) {
@@ -110,7 +142,20 @@ public class DocumentSequence {
         }
         
         public Builder integerSequence(List<Integer> integerSequence) {
-            this.integerSequence = new ArrayList<>(integerSequence);
+            int[] ids = new int[integerSequence.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = integerSequence.get(i);
+            }
+            this.integerSequence = ids;
+            return this;
+        }
+        
+        /**
+         * Set the integer sequence from a primitive array
+         * The array is adopted without copying and must not be modified afterwards.
+         */
+        public Builder integerSequence(int[] integerSequence) {
+            this.integerSequence = integerSequence;
             return this;
         }
         
@@ -6,12 +6,14 @@ import java.util.*;
  * SequenceVector - Represents a document as a numerical vector
  * Supports both sparse and dense representations
  * 
- * Used for BoW, TF-IDF, and other vectorization outputs
+ * Used for BoW, TF-IDF, and other vectorization outputs.
+ * A sparse vector is a row view into a CSR SparseMatrix; the values are not copied.
  */
 public class SequenceVector {
     
     private final String documentId;
-    private final Map<Integer, Double> sparseVector;
+    private final SparseMatrix sparseMatrix;
+    private final int row;
     private final double[] denseVector;
     private final VectorizationType type;
     private final Map<String, Object> metadata;
@@ -25,7 +27,8 @@ public class SequenceVector {
     
     private SequenceVector(Builder builder) {
         this.documentId = builder.documentId;
-        this.sparseVector = builder.sparseVector;
+        this.sparseMatrix = builder.sparseMatrix;
+        this.row = builder.row;
         this.denseVector = builder.denseVector;
         this.type = builder.type;
         this.metadata = builder.metadata;
@@ -36,7 +39,7 @@ public class SequenceVector {
     }
     
     public Map<Integer, Double> getSparseVector() {
-        return sparseVector != null ? new HashMap<>(sparseVector) : null;
+        return sparseMatrix != null ? sparseMatrix.toMap(row) : null;
     }
     
     public double[] getDenseVector() {
@@ -58,7 +61,7 @@ public class SequenceVector {
     public int getDimension() {
         if (denseVector != null) {
             return denseVector.length;
-        } else if (sparseVector != null && metadata.containsKey("vocabulary_size")) {
+        } else if (sparseMatrix != null && metadata.containsKey("vocabulary_size")) {
             return (Integer) metadata.get("vocabulary_size");
         }
         return 0;
@@ -69,9 +72,9 @@ public class SequenceVector {
      * @return Sparsity ratio (0.0 to 1.0)
      */
     public double getSparsity() {
-        if (sparseVector != null && metadata.containsKey("vocabulary_size")) {
+        if (sparseMatrix != null && metadata.containsKey("vocabulary_size")) {
             int vocabSize = (Integer) metadata.get("vocabulary_size");
-            int nonZeroCount = sparseVector.size();
+            int nonZeroCount = sparseMatrix.getRowNonZeroCount(row);
             return 1.0 - ((double) nonZeroCount / vocabSize);
         }
         return 0.0;
@@ -88,10 +91,8 @@ public class SequenceVector {
             for (double value : denseVector) {
                 norm += value * value;
             }
-        } else if (sparseVector != null) {
-            for (double value : sparseVector.values()) {
-                norm += value * value;
-            }
+        } else if (sparseMatrix != null) {
+            return sparseMatrix.getRowNorm(row);
         }
         
         return Math.sqrt(norm);
@@ -102,8 +103,8 @@ public class SequenceVector {
      * @return Non-zero count
      */
     public int getNonZeroCount() {
-        if (sparseVector != null) {
-            return sparseVector.size();
+        if (sparseMatrix != null) {
+            return sparseMatrix.getRowNonZeroCount(row);
         } else if (denseVector != null) {
             int count = 0;
             for (double val : denseVector) {
@@ -120,8 +121,8 @@ public class SequenceVector {
      * @return Map of top features
      */
     public Map<Integer, Double> getTopFeatures(int n) {
-        if (sparseVector != null) {
-            List<Map.Entry<Integer, Double>> sortedEntries = new ArrayList<>(sparseVector.entrySet());
+        if (sparseMatrix != null) {
+            List<Map.Entry<Integer, Double>> sortedEntries = rowEntries();
             sortedEntries.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
             
             Map<Integer, Double> topFeatures = new LinkedHashMap<>();
@@ -146,14 +147,8 @@ public class SequenceVector {
             return getDenseVector();
         }
         
-        if (sparseVector != null) {
-            double[] dense = new double[vocabularySize];
-            for (Map.Entry<Integer, Double> entry : sparseVector.entrySet()) {
-                if (entry.getKey() < vocabularySize) {
-                    dense[entry.getKey()] = entry.getValue();
-                }
-            }
-            return dense;
+        if (sparseMatrix != null) {
+            return sparseMatrix.toDenseRow(row, vocabularySize);
         }
         
         return new double[vocabularySize];
@@ -181,11 +176,11 @@ public class SequenceVector {
         sb.append("Dimension: ").append(getDimension()).append("\n");
         sb.append("L2 Norm: ").append(String.format("%.6f", getL2Norm())).append("\n");
         
-        if (sparseVector != null) {
+        if (sparseMatrix != null) {
             sb.append("Sparsity: ").append(String.format("%.2f%%", getSparsity() * 100)).append("\n");
-            sb.append("Non-zero features: ").append(sparseVector.size()).append("\n");
+            sb.append("Non-zero features: ").append(getNonZeroCount()).append("\n");
             
-            List<Map.Entry<Integer, Double>> sortedEntries = new ArrayList<>(sparseVector.entrySet());
+            List<Map.Entry<Integer, Double>> sortedEntries = rowEntries();
             sortedEntries.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
             
             sb.append("Top features (index: value):\n");
@@ -218,12 +213,26 @@ public class SequenceVector {
         return sb.toString();
     }
     
+    /**
+     * Entries of the sparse row in column order (stable sorts keep ties by index)
+     */
+    private List<Map.Entry<Integer, Double>> rowEntries() {
+        int[] indices = sparseMatrix.getIndices();
+        double[] data = sparseMatrix.getData();
+        List<Map.Entry<Integer, Double>> entries = new ArrayList<>(sparseMatrix.getRowNonZeroCount(row));
+        for (int j = sparseMatrix.getRowStart(row); j < sparseMatrix.getRowEnd(row); j++) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(indices[j], data[j]));
+        }
+        return entries;
+    }
+    
     /**
      * Builder for SequenceVector
      */
     public static class Builder {
         private String documentId;
-        private Map<Integer, Double> sparseVector;
+        private SparseMatrix sparseMatrix;
+        private int row;
         private double[] denseVector;
         private VectorizationType type = VectorizationType.CUSTOM;
         private Map<String, Object> metadata = new LinkedHashMap<>();
@@ -234,7 +243,24 @@ public class SequenceVector {
         }
         
         public Builder sparseVector(Map<Integer, Double> sparseVector) {
-            this.sparseVector = new HashMap<>(sparseVector);
+            int columns = 0;
+            for (Integer index : sparseVector.keySet()) {
+                columns = Math.max(columns, index + 1);
+            }
+            this.sparseMatrix = SparseMatrix.fromRows(Collections.singletonList(sparseVector), columns);
+            this.row = 0;
+            return this;
+        }
+        
+        /**
+         * Use one row of a CSR matrix as the sparse vector (shared, not copied)
+         */
+        public Builder sparseRow(SparseMatrix matrix, int row) {
+            if (row < 0 || row >= matrix.getRowCount()) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + matrix.getRowCount());
+            }
+            this.sparseMatrix = matrix;
+            this.row = row;
             return this;
         }
         
@@ -0,0 +1,306 @@
+package com.example.sequencer.model;
+
+import java.util.*;
+
+/**
+ * SparseMatrix - Compressed sparse row (CSR) matrix of doubles
+ * Row r holds the columns indices[indptr[r] .. indptr[r + 1]) with values at the
+ * same positions in data. Column indices are sorted within each row.
+ *
+ * Native output of the BoW and TF-IDF vectorizers: one int and one double per
+ * nonzero instead of a boxed HashMap entry. SequenceVector is a row view into it.
+ */
+public final class SparseMatrix {
+
+    private final int columnCount;
+    private final int[] indptr;
+    private final int[] indices;
+    private final double[] data;
+
+    /**
+     * Wrap existing CSR arrays (adopted without copying)
+     * @param columnCount Number of columns
+     * @param indptr Row pointers (rowCount + 1 entries)
+     * @param indices Column indices, sorted within each row
+     * @param data Values matching indices
+     */
+    public SparseMatrix(int columnCount, int[] indptr, int[] indices, double[] data) {
+        if (indptr.length == 0 || indptr[indptr.length - 1] > indices.length || indices.length != data.length) {
+            throw new IllegalArgumentException("Inconsistent CSR arrays: indptr=" + indptr.length
+                    + ", indices=" + indices.length + ", data=" + data.length);
+        }
+        this.columnCount = columnCount;
+        this.indptr = indptr;
+        this.indices = indices;
+        this.data = data;
+    }
+
+    /**
+     * Build a matrix from map-based sparse rows
+     * @param rows Sparse rows (column index → value)
+     * @param columnCount Number of columns
+     * @return CSR matrix
+     * @throws IllegalArgumentException if a column index is negative or not below columnCount
+     */
+    public static SparseMatrix fromRows(List<Map<Integer, Double>> rows, int columnCount) {
+        int nonZeros = 0;
+        for (Map<Integer, Double> row : rows) {
+            for (Integer column : row.keySet()) {
+                if (column < 0 || column >= columnCount) {
+                    throw new IllegalArgumentException("Column index " + column
+                            + " out of range for " + columnCount + " columns");
+                }
+            }
+            nonZeros += row.size();
+        }
+        Builder builder = new Builder(columnCount, nonZeros);
+        for (Map<Integer, Double> row : rows) {
+            for (Map.Entry<Integer, Double> entry : row.entrySet()) {
+                builder.add(entry.getKey(), entry.getValue());
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Stack matrices vertically (rows of the first, then the second, ...)
+     * @param blocks Row blocks with the same column count
+     * @return CSR matrix with all rows (the block itself if there is only one)
+     */
+    public static SparseMatrix vstack(List<SparseMatrix> blocks) {
+        if (blocks.size() == 1) {
+            return blocks.get(0);
+        }
+        int columnCount = blocks.isEmpty() ? 0 : blocks.get(0).columnCount;
+        int rows = 0;
+        int nonZeros = 0;
+        for (SparseMatrix block : blocks) {
+            if (block.columnCount != columnCount) {
+                throw new IllegalArgumentException("Column count mismatch: " + block.columnCount + " != " + columnCount);
+            }
+            rows += block.getRowCount();
+            nonZeros += block.getNonZeroCount();
+        }
+
+        int[] indptr = new int[rows + 1];
+        int[] indices = new int[nonZeros];
+        double[] data = new double[nonZeros];
+        int row = 0;
+        int base = 0;
+        for (SparseMatrix block : blocks) {
+            int blockNonZeros = block.getNonZeroCount();
+            System.arraycopy(block.indices, 0, indices, base, blockNonZeros);
+            System.arraycopy(block.data, 0, data, base, blockNonZeros);
+            for (int r = 0; r < block.getRowCount(); r++) {
+                indptr[++row] = base + block.indptr[r + 1];
+            }
+            base += blockNonZeros;
+        }
+        return new SparseMatrix(columnCount, indptr, indices, data);
+    }
+
+    public int getRowCount() {
+        return indptr.length - 1;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getNonZeroCount() {
+        return indptr[indptr.length - 1];
+    }
+
+    public int getRowStart(int row) {
+        return indptr[row];
+    }
+
+    public int getRowEnd(int row) {
+        return indptr[row + 1];
+    }
+
+    public int getRowNonZeroCount(int row) {
+        return indptr[row + 1] - indptr[row];
+    }
+
+    /**
+     * Row pointer array; returned without copying, callers must not modify it.
+     */
+    public int[] getIndptr() {
+        return indptr;
+    }
+
+    /**
+     * Column index array; returned without copying, callers must not modify it.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Value array; returned without copying, callers must not modify it.
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    /**
+     * Value at (row, column)
+     * @return Value, or 0.0 if the entry is not stored
+     */
+    public double get(int row, int column) {
+        int position = Arrays.binarySearch(indices, indptr[row], indptr[row + 1], column);
+        return position >= 0 ? data[position] : 0.0;
+    }
+
+    /**
+     * L2 norm of a row
+     */
+    public double getRowNorm(int row) {
+        double norm = 0.0;
+        for (int j = indptr[row]; j < indptr[row + 1]; j++) {
+            norm += data[j] * data[j];
+        }
+        return Math.sqrt(norm);
+    }
+
+    /**
+     * Copy a row into a map (column index → value)
+     */
+    public Map<Integer, Double> toMap(int row) {
+        Map<Integer, Double> map = new HashMap<>();
+        for (int j = indptr[row]; j < indptr[row + 1]; j++) {
+            map.put(indices[j], data[j]);
+        }
+        return map;
+    }
+
+    /**
+     * Copy all rows into maps, the pre-CSR vectorizer output format
+     */
+    public List<Map<Integer, Double>> toMaps() {
+        List<Map<Integer, Double>> rows = new ArrayList<>(getRowCount());
+        for (int r = 0; r < getRowCount(); r++) {
+            rows.add(toMap(r));
+        }
+        return rows;
+    }
+
+    /**
+     * Copy a row into a dense array; columns at or beyond the length are dropped
+     */
+    public double[] toDenseRow(int row, int length) {
+        double[] dense = new double[length];
+        for (int j = indptr[row]; j < indptr[row + 1]; j++) {
+            if (indices[j] < length) {
+                dense[indices[j]] = data[j];
+            }
+        }
+        return dense;
+    }
+
+    @Override
+    public String toString() {
+        return "SparseMatrix{" +
+                "rows=" + getRowCount() +
+                ", columns=" + columnCount +
+                ", nonZeros=" + getNonZeroCount() +
+                '}';
+    }
+
+    /**
+     * Builder for SparseMatrix, filled row by row
+     * Entries of a row may be added in any column order; the row is sorted when it ends.
+     */
+    public static class Builder {
+        private final int columnCount;
+        private int[] indptr = new int[16];
+        private int[] indices;
+        private double[] data;
+        private int rowCount;
+        private int size;
+        private boolean rowSorted = true;
+
+        public Builder(int columnCount) {
+            this(columnCount, 16);
+        }
+
+        public Builder(int columnCount, int expectedNonZeros) {
+            this.columnCount = columnCount;
+            this.indices = new int[Math.max(16, expectedNonZeros)];
+            this.data = new double[indices.length];
+        }
+
+        /**
+         * Append an entry to the current row
+         */
+        public Builder add(int column, double value) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                data = Arrays.copyOf(data, size * 2);
+            }
+            if (size > indptr[rowCount] && indices[size - 1] >= column) {
+                rowSorted = false;
+            }
+            indices[size] = column;
+            data[size] = value;
+            size++;
+            return this;
+        }
+
+        /**
+         * Close the current row (an empty row is allowed)
+         */
+        public Builder endRow() {
+            if (!rowSorted) {
+                sortRow(indptr[rowCount], size);
+                rowSorted = true;
+            }
+            if (rowCount + 2 > indptr.length) {
+                indptr = Arrays.copyOf(indptr, indptr.length * 2);
+            }
+            indptr[++rowCount] = size;
+            return this;
+        }
+
+        /**
+         * Divide the current (not yet ended) row by its L2 norm; a zero row is left as is
+         */
+        public Builder normalizeRowL2() {
+            double norm = 0.0;
+            for (int j = indptr[rowCount]; j < size; j++) {
+                norm += data[j] * data[j];
+            }
+            norm = Math.sqrt(norm);
+            if (norm != 0.0) {
+                for (int j = indptr[rowCount]; j < size; j++) {
+                    data[j] /= norm;
+                }
+            }
+            return this;
+        }
+
+        public SparseMatrix build() {
+            if (size > indptr[rowCount]) {
+                throw new IllegalStateException("Last row was not ended");
+            }
+            return new SparseMatrix(columnCount, Arrays.copyOf(indptr, rowCount + 1),
+                    Arrays.copyOf(indices, size), Arrays.copyOf(data, size));
+        }
+
+        private void sortRow(int from, int to) {
+            // Sắp xếp theo cột: khóa = (cột << 32) | vị trí gốc
+            long[] keys = new long[to - from];
+            for (int j = from; j < to; j++) {
+                keys[j - from] = ((long) indices[j] << 32) | (j - from);
+            }
+            Arrays.sort(keys);
+            double[] values = Arrays.copyOfRange(data, from, to);
+            for (int k = 0; k < keys.length; k++) {
+                indices[from + k] = (int) (keys[k] >>> 32);
+                data[from + k] = values[(int) keys[k]];
+            }
+        }
+    }
+}
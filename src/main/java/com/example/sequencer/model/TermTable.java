@@ -0,0 +1,180 @@
+package com.example.sequencer.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * TermTable - Primitive String → dense int id table
+ * Terms get ids 0..size-1 in insertion order. Open addressing over parallel arrays
+ * (slot term, cached hash, id; linear probing, load factor <= 0.5), so neither a
+ * lookup nor an insert allocates a boxed Integer or an entry object. Each id can
+ * carry one int value (a count, a frequency, ...).
+ *
+ * Shared by ColumnarCorpus, Vocabulary, TokenCounter and the streaming and fitted
+ * pipelines. Not thread-safe for writes; concurrent lookups on a table that is no
+ * longer modified are safe.
+ */
+public final class TermTable {
+
+    private String[] slotTerms;
+    private int[] slotHashes;
+    private int[] slotIds;
+    // id → term, id → giá trị kèm theo
+    private String[] terms;
+    private int[] values;
+    private int size;
+
+    public TermTable() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Number of terms to hold without resizing
+     */
+    public TermTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.slotTerms = new String[capacity];
+        this.slotHashes = new int[capacity];
+        this.slotIds = new int[capacity];
+        this.terms = new String[capacity / 2];
+        this.values = new int[capacity / 2];
+    }
+
+    /**
+     * Id of a term, assigning the next id on first sight
+     * @param term Term to intern
+     * @return Dense id
+     */
+    public int intern(String term) {
+        int hash = term.hashCode();
+        int mask = slotTerms.length - 1;
+        int slot = mix(hash) & mask;
+        String existing;
+        while ((existing = slotTerms[slot]) != null) {
+            if (slotHashes[slot] == hash && (existing == term || existing.equals(term))) {
+                return slotIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size;
+        if (id == terms.length) {
+            terms = Arrays.copyOf(terms, id * 2);
+            values = Arrays.copyOf(values, id * 2);
+        }
+        terms[id] = term;
+        slotTerms[slot] = term;
+        slotHashes[slot] = hash;
+        slotIds[slot] = id;
+        if (++size * 2 > slotTerms.length) {
+            rehash(slotTerms.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Id of a term without adding it
+     * @param term Term to look up
+     * @return Id, or -1 if absent
+     */
+    public int lookup(String term) {
+        int hash = term.hashCode();
+        int mask = slotTerms.length - 1;
+        int slot = mix(hash) & mask;
+        String existing;
+        while ((existing = slotTerms[slot]) != null) {
+            if (slotHashes[slot] == hash && (existing == term || existing.equals(term))) {
+                return slotIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String getTerm(int id) {
+        return terms[id];
+    }
+
+    public int getValue(int id) {
+        return values[id];
+    }
+
+    public void setValue(int id, int value) {
+        values[id] = value;
+    }
+
+    public void addValue(int id, int delta) {
+        values[id] += delta;
+    }
+
+    /**
+     * Number of terms (ids are 0..size-1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Terms in id order
+     * @return New array
+     */
+    public String[] toArray() {
+        return Arrays.copyOf(terms, size);
+    }
+
+    /**
+     * Read-only view of the terms in id order (follows later inserts)
+     */
+    public List<String> asList() {
+        return new TermList();
+    }
+
+    private void rehash(int capacity) {
+        slotTerms = new String[capacity];
+        slotHashes = new int[capacity];
+        slotIds = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int hash = terms[id].hashCode();
+            int slot = mix(hash) & mask;
+            while (slotTerms[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotTerms[slot] = terms[id];
+            slotHashes[slot] = hash;
+            slotIds[slot] = id;
+        }
+    }
+
+    private static int mix(int hash) {
+        // Trộn bit cao xuống để tránh cụm khi dùng mask
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class TermList extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+            }
+            return terms[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && lookup((String) o) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof String ? lookup((String) o) : -1;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sequencer.pipeline;
+
+/**
+ * DocumentStage - One per-document step of the pipeline
+ * Stages are fused with {@link #andThen(DocumentStage)} into a single function, so each
+ * document runs through every fused step before the next document starts. Intermediate
+ * results die young; only the output of the last stage is retained for the corpus.
+ *
+ * @param <I> Input of the stage (e.g. raw text or tokens)
+ * @param <O> Output of the stage
+ */
+@FunctionalInterface
+public interface DocumentStage<I, O> {
+
+    /**
+     * Process one document
+     * @param documentIndex Index of the document in the corpus (for per-document counters)
+     * @param input Stage input
+     * @return Stage output
+     */
+    O apply(int documentIndex, I input);
+
+    /**
+     * Fuse this stage with the next one
+     * @param next Stage applied to this stage's output
+     * @return Fused stage
+     */
+    default <R> DocumentStage<I, R> andThen(DocumentStage<? super O, ? extends R> next) {
+        return (documentIndex, input) -> next.apply(documentIndex, apply(documentIndex, input));
+    }
+}
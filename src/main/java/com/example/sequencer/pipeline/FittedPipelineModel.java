@@ -0,0 +1,376 @@
+package com.example.sequencer.pipeline;
+
+import com.example.sequencer.encoding.IntegerEncoder;
+import com.example.sequencer.encoding.Vocabulary;
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
+import com.example.sequencer.model.SparseMatrix;
+import com.example.sequencer.model.TermTable;
+import com.example.sequencer.pipeline.SequencingPipeline.Output;
+import com.example.sequencer.pipeline.SequencingPipeline.PipelineConfiguration;
+import com.example.sequencer.preprocessing.PorterStemmer;
+import com.example.sequencer.preprocessing.StemmerConfig;
+import com.example.sequencer.preprocessing.StopWordFilter;
+import com.example.sequencer.preprocessing.TextPreprocessor;
+import com.example.sequencer.preprocessing.Tokenizer;
+import com.example.sequencer.vectorization.TfidfVectorizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * FittedPipelineModel - Fitted state of a pipeline run, for transform-only use
+ * Holds the fit-time configuration, the vocabulary, the BoW/TF-IDF features with their
+ * IDF, and the stemmer's protected and known words. Transforming never refits: sequence
+ * ids and feature indices are those of the fit, so documents vectorized later line up
+ * with the training output (the training documents themselves transform identically).
+ *
+ * Saved as a compact binary file: a header, then length-prefixed UTF-8 string tables and
+ * raw IDF doubles. Transforms are thread-safe.
+ */
+public final class FittedPipelineModel {
+
+    // "DSQM"
+    private static final int MAGIC = 0x4453514D;
+    private static final int VERSION = 1;
+
+    private static final Set<Output> TRANSFORM_OUTPUTS = Collections.unmodifiableSet(
+            EnumSet.of(Output.SEQUENCES, Output.BAG_OF_WORDS, Output.TF_IDF));
+
+    private final PipelineConfiguration config;
+    private final int documentCount;
+    private final Vocabulary vocabulary;
+    private final String[] features;
+    private final double[] idf;
+    private final StemmerConfig stemmerConfig;
+
+    // Thành phần chỉ đọc, dùng chung cho mọi luồng transform
+    private final TextPreprocessor preprocessor;
+    private final Tokenizer tokenizer;
+    private final StopWordFilter stopWordFilter;
+    private final PorterStemmer stemmer;
+    private final IntegerEncoder encoder;
+    private final TermTable featureIndex;
+
+    FittedPipelineModel(PipelineConfiguration config, int documentCount, Vocabulary vocabulary,
+                        String[] features, double[] idf, StemmerConfig stemmerConfig) {
+        this.config = config;
+        this.documentCount = documentCount;
+        this.vocabulary = vocabulary;
+        this.features = features;
+        this.idf = idf;
+        this.stemmerConfig = stemmerConfig;
+
+        // Không thu thập tên riêng khi transform: bảng từ bảo vệ là của lần fit
+        this.preprocessor = config.createPreprocessor(false);
+        this.tokenizer = new Tokenizer(config.getMinTokenLength());
+        this.stopWordFilter = new StopWordFilter();
+        this.stemmer = new PorterStemmer();
+        this.stemmer.setConfig(stemmerConfig);
+        this.encoder = new IntegerEncoder(vocabulary);
+        // Feature f có id f trong bảng vì được thêm theo thứ tự
+        this.featureIndex = new TermTable(features.length);
+        for (String feature : features) {
+            featureIndex.intern(feature);
+        }
+    }
+
+    /**
+     * Capture the fitted state of a pipeline run
+     * Features are the corpus term ids (first appearance), as in the in-memory vectorizers.
+     * The configuration and vocabulary are copied, so later changes to the pipeline (setters,
+     * another execute) do not reach the model.
+     */
+    static FittedPipelineModel of(PipelineConfiguration config, CorpusStatistics statistics,
+                                  Vocabulary vocabulary, StemmerConfig stemmerConfig) {
+        ColumnarCorpus corpus = statistics.getCorpus();
+        int termCount = corpus.getDistinctTermCount();
+        String[] features = new String[termCount];
+        double[] idf = new double[termCount];
+        for (int t = 0; t < termCount; t++) {
+            features[t] = corpus.getTerm(t);
+            idf[t] = TfidfVectorizer.smoothIdf(statistics.getDocumentCount(), statistics.getDocumentFrequency(t));
+        }
+        return new FittedPipelineModel(config.copyFitSettings(), statistics.getDocumentCount(),
+                copyVocabulary(config.getMinFrequency(), tokensOf(vocabulary)), features, idf,
+                config.isApplyStemming() ? stemmerConfig : StemmerConfig.EMPTY);
+    }
+
+    /**
+     * Transform one document (integer sequence, BoW and TF-IDF)
+     * @param text Raw document text
+     * @return Transformation with a single row
+     */
+    public Transformation transform(String text) {
+        return transformBatch(Collections.singletonList(text), TRANSFORM_OUTPUTS);
+    }
+
+    /**
+     * Transform documents (integer sequences, BoW and TF-IDF)
+     * @param texts Raw document texts
+     * @return Transformation with one row per document
+     */
+    public Transformation transformBatch(List<String> texts) {
+        return transformBatch(texts, TRANSFORM_OUTPUTS);
+    }
+
+    /**
+     * Transform documents, computing only the selected outputs
+     * @param texts Raw document texts
+     * @param outputs Any of SEQUENCES, BAG_OF_WORDS, TF_IDF
+     * @return Transformation with one row per document
+     */
+    public Transformation transformBatch(List<String> texts, Set<Output> outputs) {
+        if (outputs.contains(Output.TFIDF_FORMULAS)) {
+            throw new IllegalArgumentException("Output " + Output.TFIDF_FORMULAS
+                    + " needs the training corpus and is not available from a fitted model");
+        }
+        boolean sequences = outputs.contains(Output.SEQUENCES);
+        boolean bow = outputs.contains(Output.BAG_OF_WORDS);
+        boolean tfidf = outputs.contains(Output.TF_IDF);
+
+        List<int[]> integerSequences = sequences ? new ArrayList<>(texts.size()) : null;
+        SparseMatrix.Builder bowMatrix = bow ? new SparseMatrix.Builder(features.length) : null;
+        SparseMatrix.Builder tfidfMatrix = tfidf ? new SparseMatrix.Builder(features.length) : null;
+        for (String text : texts) {
+            List<String> tokens = analyze(text);
+            if (sequences) {
+                integerSequences.add(encoder.encodeToArray(tokens));
+            }
+            if (bow || tfidf) {
+                appendRows(tokens, bowMatrix, tfidfMatrix);
+            }
+        }
+        return new Transformation(texts.size(), integerSequences,
+                bow ? bowMatrix.build() : null, tfidf ? tfidfMatrix.build() : null);
+    }
+
+    /**
+     * Preprocess, tokenize, filter and stem one document with the fit-time settings
+     */
+    private List<String> analyze(String text) {
+        List<String> tokens = tokenizer.tokenize(text, preprocessor);
+        if (config.isRemoveStopWords()) {
+            tokens = stopWordFilter.filter(tokens);
+        }
+        if (config.isApplyStemming()) {
+            tokens = stemmer.stemAll(tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Append the BoW and TF-IDF rows of one document
+     * Terms unseen at fit time are skipped but still count towards the document length.
+     */
+    private void appendRows(List<String> tokens, SparseMatrix.Builder bowMatrix, SparseMatrix.Builder tfidfMatrix) {
+        int[] ids = new int[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            int id = featureIndex.lookup(token);
+            if (id >= 0) {
+                ids[n++] = id;
+            }
+        }
+        // Thêm theo thứ tự feature tăng dần như CorpusStatistics, để chuẩn L2 giống hệt lúc fit
+        Arrays.sort(ids, 0, n);
+
+        for (int i = 0; i < n; ) {
+            int term = ids[i];
+            int count = 0;
+            for (; i < n && ids[i] == term; i++) {
+                count++;
+            }
+            if (bowMatrix != null) {
+                bowMatrix.add(term, config.isBinaryBoW() ? 1.0 : count);
+            }
+            if (tfidfMatrix != null) {
+                double tf = config.isSublinearTf() ? 1.0 + Math.log(count) : (double) count / tokens.size();
+                tfidfMatrix.add(term, tf * idf[term]);
+            }
+        }
+        if (bowMatrix != null) {
+            bowMatrix.endRow();
+        }
+        if (tfidfMatrix != null) {
+            tfidfMatrix.normalizeRowL2().endRow();
+        }
+    }
+
+    /**
+     * Save the model to a binary file
+     * @param path Output file
+     * @throws IOException if writing fails
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            config.writeTo(out);
+            out.writeInt(documentCount);
+
+            writeStrings(out, tokensOf(vocabulary));
+            writeStrings(out, Arrays.asList(features));
+            for (double value : idf) {
+                out.writeDouble(value);
+            }
+            writeStrings(out, stemmerConfig.getProtectedWords().toList());
+            writeStrings(out, stemmerConfig.getKnownWords().toList());
+        }
+    }
+
+    /**
+     * Load a model saved with {@link #save(Path)}
+     * @param path Model file
+     * @return Fitted model
+     * @throws IOException if the file cannot be read or is not a model file
+     */
+    public static FittedPipelineModel load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a fitted pipeline model: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported model version " + version + ": " + path);
+            }
+            PipelineConfiguration config = PipelineConfiguration.readFrom(in);
+            int documentCount = in.readInt();
+
+            Vocabulary vocabulary = copyVocabulary(config.getMinFrequency(), readStrings(in));
+
+            String[] features = readStrings(in).toArray(new String[0]);
+            double[] idf = new double[features.length];
+            for (int f = 0; f < idf.length; f++) {
+                idf[f] = in.readDouble();
+            }
+            StemmerConfig stemmerConfig = new StemmerConfig.Builder()
+                    .protectedWords(readStrings(in))
+                    .knownWords(readStrings(in))
+                    .build();
+            return new FittedPipelineModel(config, documentCount, vocabulary, features, idf, stemmerConfig);
+        }
+    }
+
+    private static List<String> tokensOf(Vocabulary vocabulary) {
+        List<String> tokens = new ArrayList<>(vocabulary.getSize());
+        for (int id = 0; id < vocabulary.getSize(); id++) {
+            tokens.add(vocabulary.getToken(id));
+        }
+        return tokens;
+    }
+
+    /**
+     * Rebuild a vocabulary from its tokens in id order
+     */
+    private static Vocabulary copyVocabulary(int minFrequency, List<String> tokens) {
+        // Id 0 = <PAD>, 1 = <UNK>; thêm các token còn lại theo thứ tự id
+        Vocabulary vocabulary = new Vocabulary(minFrequency, tokens.get(1), tokens.get(0));
+        for (String token : tokens.subList(2, tokens.size())) {
+            vocabulary.addToken(token);
+        }
+        return vocabulary;
+    }
+
+    private static void writeStrings(DataOutput out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<>(count);
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+            strings.add(new String(buffer, 0, length, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+
+    /**
+     * Copy of the fit-time configuration (runtime settings such as parallelism are defaults)
+     */
+    public PipelineConfiguration getConfiguration() {
+        return config.copyFitSettings();
+    }
+
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Number of BoW / TF-IDF features (columns of the transformed matrices)
+     */
+    public int getFeatureCount() {
+        return features.length;
+    }
+
+    /**
+     * Number of documents the model was fitted on
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Outputs of a transform, one row per input document
+     */
+    public static final class Transformation {
+        private final int documentCount;
+        private final List<int[]> integerSequences;
+        private final SparseMatrix bowMatrix;
+        private final SparseMatrix tfidfMatrix;
+
+        Transformation(int documentCount, List<int[]> integerSequences,
+                       SparseMatrix bowMatrix, SparseMatrix tfidfMatrix) {
+            this.documentCount = documentCount;
+            this.integerSequences = integerSequences;
+            this.bowMatrix = bowMatrix;
+            this.tfidfMatrix = tfidfMatrix;
+        }
+
+        public int getDocumentCount() {
+            return documentCount;
+        }
+
+        /**
+         * Integer sequence of a document (unknown tokens map to &lt;UNK&gt;)
+         */
+        public int[] getIntegerSequence(int documentIndex) {
+            return require(integerSequences, Output.SEQUENCES).get(documentIndex);
+        }
+
+        public SparseMatrix getBowMatrix() {
+            return require(bowMatrix, Output.BAG_OF_WORDS);
+        }
+
+        public SparseMatrix getTfidfMatrix() {
+            return require(tfidfMatrix, Output.TF_IDF);
+        }
+
+        private static <T> T require(T output, Output kind) {
+            if (output == null) {
+                throw new IllegalStateException("Output " + kind + " was not selected for this transform");
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.sequencer.pipeline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * PipelinedExecutor - Runs read → process → consume as concurrent stages
+ * A reader thread pulls items from the source into a bounded queue, worker threads
+ * process them, and the calling thread consumes the results in source order.
+ *
+ * At most queueCapacity items are in flight (read but not yet consumed): the reader
+ * blocks when the consumer falls behind, so memory is bounded by the capacity, not by
+ * the input size, and reading overlaps with processing.
+ */
+public final class PipelinedExecutor {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final Object END = new Object();
+
+    private final int workers;
+    private final int queueCapacity;
+
+    public PipelinedExecutor(int workers) {
+        this(workers, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PipelinedExecutor(int workers, int queueCapacity) {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("workers and queueCapacity must be at least 1: "
+                    + workers + ", " + queueCapacity);
+        }
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Consumer stage, called on the calling thread in source order
+     */
+    public interface Sink<T> {
+        void accept(T item) throws IOException;
+    }
+
+    /**
+     * Process every item of the source and hand the results to the sink in order
+     * @param source Items to process; read on a dedicated thread (may throw UncheckedIOException)
+     * @param work Processing stage, run concurrently on the workers; must be thread-safe
+     * @param sink Consumer stage
+     * @return Number of items processed
+     * @throws IOException if the source or the sink fails with an I/O error
+     */
+    public <I, O> long run(Iterator<I> source, Function<? super I, ? extends O> work, Sink<? super O> sink)
+            throws IOException {
+        Run<I, O> run = new Run<>(work);
+        ExecutorService threads = Executors.newFixedThreadPool(workers + 1, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            threads.execute(() -> run.read(source));
+            for (int w = 0; w < workers; w++) {
+                threads.execute(run::process);
+            }
+            return run.consume(sink);
+        } finally {
+            threads.shutdownNow();
+            try {
+                threads.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * State of one run: input queue, reorder ring and failure
+     */
+    private final class Run<I, O> {
+        private final Function<? super I, ? extends O> work;
+        private final BlockingQueue<Object> input = new ArrayBlockingQueue<>(queueCapacity + 1);
+        // Giới hạn số phần tử đang xử lý: reader lấy permit, consumer trả lại
+        private final Semaphore inFlight = new Semaphore(queueCapacity);
+        // Kết quả theo số thứ tự; seq nằm trong [next, next + capacity) nên dùng vòng tròn
+        private final Object[] ring = new Object[queueCapacity];
+        private long total = -1;
+        private Throwable failure;
+
+        Run(Function<? super I, ? extends O> work) {
+            this.work = work;
+        }
+
+        void read(Iterator<I> source) {
+            long seq = 0;
+            try {
+                while (source.hasNext()) {
+                    inFlight.acquire();
+                    input.put(new Item(seq++, source.next()));
+                }
+                input.put(END);
+                synchronized (ring) {
+                    total = seq;
+                    ring.notifyAll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void process() {
+            try {
+                while (true) {
+                    Object next = input.take();
+                    if (next == END) {
+                        // Trả lại dấu kết thúc cho các worker khác
+                        input.put(END);
+                        return;
+                    }
+                    Item item = (Item) next;
+                    O result = work.apply((I) item.value);
+                    synchronized (ring) {
+                        ring[(int) (item.seq % queueCapacity)] = result != null ? result : END;
+                        ring.notifyAll();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        long consume(Sink<? super O> sink) throws IOException {
+            long next = 0;
+            while (true) {
+                Object result;
+                synchronized (ring) {
+                    int slot = (int) (next % queueCapacity);
+                    while (ring[slot] == null && failure == null && total != next) {
+                        try {
+                            ring.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("Pipeline interrupted", e);
+                        }
+                    }
+                    if (failure != null) {
+                        rethrow(failure);
+                    }
+                    if (ring[slot] == null) {
+                        return next;
+                    }
+                    result = ring[slot];
+                    ring[slot] = null;
+                }
+                sink.accept(result == END ? null : (O) result);
+                inFlight.release();
+                next++;
+            }
+        }
+
+        private void fail(Throwable t) {
+            synchronized (ring) {
+                if (failure == null) {
+                    failure = t;
+                }
+                ring.notifyAll();
+            }
+        }
+
+        private void rethrow(Throwable t) throws IOException {
+            if (t instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) t).getCause();
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static final class Item {
+        final long seq;
+        final Object value;
+
+        Item(long seq, Object value) {
+            this.seq = seq;
+            this.value = value;
+        }
+    }
+}
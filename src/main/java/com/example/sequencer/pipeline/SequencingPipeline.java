@@ -2,21 +2,44 @@ package com.example.sequencer.pipeline;
 
 import com.example.sequencer.encoding.IntegerEncoder;
 import com.example.sequencer.encoding.Vocabulary;
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
 import com.example.sequencer.model.DocumentSequence;
 import com.example.sequencer.model.SequenceVector;
+import com.example.sequencer.model.SparseMatrix;
 import com.example.sequencer.preprocessing.PorterStemmer;
+import com.example.sequencer.preprocessing.StemmerConfig;
 import com.example.sequencer.preprocessing.StopWordFilter;
 import com.example.sequencer.preprocessing.TextPreprocessor;
+import com.example.sequencer.preprocessing.TokenPool;
 import com.example.sequencer.preprocessing.Tokenizer;
 import com.example.sequencer.vectorization.BagOfWordsVectorizer;
 import com.example.sequencer.vectorization.TfidfVectorizer;
 import com.example.sequencer.vectorization.TFIDFCalculator;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +51,33 @@ import java.util.stream.Collectors;
  */
 public class SequencingPipeline {
     
+    // Số đoạn tài liệu cho mỗi luồng khi chạy song song (cân bằng tải)
+    private static final int CHUNKS_PER_WORKER = 4;
+    
+    /** Names of the concurrent branches after encoding, as reported in the branch timings */
+    public static final List<String> BRANCHES = Collections.unmodifiableList(
+            Arrays.asList("bow", "tfidf", "calculator"));
+    
+    /**
+     * Outputs a run can produce; unselected outputs are not computed at all
+     */
+    public enum Output {
+        SEQUENCES("integer sequences"),
+        BAG_OF_WORDS("BoW vectors"),
+        TF_IDF("TF-IDF vectors"),
+        TFIDF_FORMULAS("all TF-IDF formula calculations");
+        
+        private final String description;
+        
+        Output(String description) {
+            this.description = description;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+    }
+    
     private final TextPreprocessor preprocessor;
     private final Tokenizer tokenizer;
     private final StopWordFilter stopWordFilter;
@@ -44,13 +94,7 @@ public class SequencingPipeline {
         this.config = config;
         
         // Initialize preprocessing components
-        this.preprocessor = new TextPreprocessor.Builder()
-                .convertToLowercase(config.lowercase)
-                .removeHtmlTags(config.removeHtml)
-                .removeUrls(config.removeUrls)
-                .removeEmails(config.removeEmails)
-                .removeNonWords(config.removePunctuation)
-                .build();
+        this.preprocessor = config.createPreprocessor();
         
         this.tokenizer = new Tokenizer(config.minTokenLength);
         this.stopWordFilter = new StopWordFilter();
@@ -62,119 +106,385 @@ public class SequencingPipeline {
         this.tfidfCalculator = new TFIDFCalculator();
     }
     
+    /**
+     * Execute the pipeline and keep its fitted state for transform-only use
+     * Outputs follow the configuration; select only what is needed with setOutputs.
+     * @param rawDocuments List of raw document strings
+     * @return Fitted model (vocabulary, IDF and stemmer tables of this run)
+     */
+    public FittedPipelineModel fit(List<String> rawDocuments) {
+        PipelineResult result = execute(rawDocuments);
+        return FittedPipelineModel.of(config, result.getCorpusStatistics(), vocabulary, stemmer.getConfig());
+    }
+    
     /**
      * Execute the complete pipeline on documents
+     * With parallelism above 1, the per-document steps (tokenize, filter, stem, encode,
+     * transform) run on a ForkJoinPool over contiguous document chunks; fitting the
+     * vocabulary and IDF stays sequential. Results are identical to the sequential run.
      * @param rawDocuments List of raw document strings
      * @return Pipeline results containing sequences and vectors
      */
     public PipelineResult execute(List<String> rawDocuments) {
+        ForkJoinPool workers = config.parallelism > 1 ? new ForkJoinPool(config.parallelism) : null;
+        try {
+            return execute(rawDocuments, workers);
+        } finally {
+            if (workers != null) {
+                workers.shutdown();
+            }
+        }
+    }
+    
+    private PipelineResult execute(List<String> rawDocuments, ForkJoinPool workers) {
         System.out.println("\n" + "=".repeat(80));
         System.out.println("DOCUMENT-TO-SEQUENCE CONVERSION PIPELINE");
         System.out.println("=".repeat(80));
         System.out.println("Processing " + rawDocuments.size() + " documents...\n");
         
-        // Step 1: Preprocessing
-        System.out.println("[Step 1/7] Text Preprocessing...");
-        List<String> preprocessedDocs = preprocessor.preprocessAll(rawDocuments);
+        // Tài liệu được chia thành các đoạn liên tiếp; ghép kết quả theo thứ tự đoạn
+        int[] bounds = chunkBounds(rawDocuments.size(), workers);
         
-        // Truyền danh sách từ bảo vệ từ preprocessor sang stemmer
-        if (config.applyStemming) {
-            stemmer.setProtectedWords(preprocessor.getProtectedWords());
+        // Step 1-3: Preprocessing, tokenization and stop word filtering fused per document
+        // Chỉ giữ danh sách token sau lọc; danh sách tách từ thô chết ngay trong tài liệu đó
+        System.out.println("[Step 1-3/7] Text Preprocessing, Tokenization & Stop Word Filtering...");
+        // Mỗi từ phân biệt chỉ tồn tại một lần trong bộ nhớ cho cả corpus
+        // TokenPool không thread-safe: mỗi đoạn có pool riêng, gộp lại sau khi tách từ
+        TokenPool tokenPool = new TokenPool();
+        TokenPool[] chunkPools = new TokenPool[bounds.length - 1];
+        int[] originalTokenCounts = new int[rawDocuments.size()];
+        List<List<String>> documentTokens = applyStage(workers, bounds, rawDocuments, chunk -> {
+            chunkPools[chunk] = chunkPools.length == 1 ? tokenPool : new TokenPool();
+            return analysisStage(chunkPools[chunk], originalTokenCounts);
+        });
+        if (chunkPools.length > 1) {
+            for (TokenPool chunkPool : chunkPools) {
+                tokenPool.addAll(chunkPool);
+            }
         }
+        List<String> preprocessedDocs = config.retainPreprocessedText
+                ? applyStage(workers, bounds, rawDocuments, chunk -> (i, raw) -> preprocessor.preprocess(raw))
+                : null;
         
-        System.out.println("  ✓ Completed: Applied cleaning and normalization\n");
+        // Truyền từ bảo vệ (từ preprocessor) và từ đã biết sang stemmer trong một snapshot
+        // Token pool lúc này chứa đúng tập token của corpus (kể cả stop word), nên đóng băng trực tiếp
+        if (config.applyStemming) {
+            stemmer.setConfig(new StemmerConfig.Builder()
+                    .protectedWords(preprocessor.getProtectedWords())
+                    .knownWords(tokenPool.toWordTable())
+                    .build());
+        }
         
-        // Step 2: Tokenization
-        System.out.println("[Step 2/7] Tokenization...");
-        List<List<String>> tokenizedDocs = tokenizer.tokenizeAll(preprocessedDocs);
-        int totalTokens = tokenizedDocs.stream().mapToInt(List::size).sum();
-        System.out.println("  ✓ Completed: Generated " + totalTokens + " tokens\n");
-
-        // Cập nhật danh sách từ đã biết để logic stemming giữ nguyên nghĩa
-        Set<String> knownWords = tokenizedDocs.stream()
-                .flatMap(List::stream)
-                .collect(Collectors.toSet());
-        stemmer.setKnownWords(knownWords);
-        
-        // Step 3: Stop word filtering
-        System.out.println("[Step 3/7] Stop Word Filtering...");
-        List<List<String>> filteredDocs = config.removeStopWords 
-                ? stopWordFilter.filterAll(tokenizedDocs) 
-                : tokenizedDocs;
-        int tokensAfterFilter = filteredDocs.stream().mapToInt(List::size).sum();
+        System.out.println("  ✓ Completed: Applied cleaning and normalization");
+        long totalTokens = 0;
+        for (int count : originalTokenCounts) {
+            totalTokens += count;
+        }
+        System.out.println("  ✓ Completed: Generated " + totalTokens + " tokens");
+        int tokensAfterFilter = documentTokens.stream().mapToInt(List::size).sum();
         System.out.println("  ✓ Completed: Retained " + tokensAfterFilter + " tokens\n");
         
         // Step 4: Stemming
+        // Stemmer cần tập từ đã biết của cả corpus, nên đây là một rào chắn; stem tại chỗ
         System.out.println("[Step 4/7] Stemming...");
-        List<List<String>> stemmedDocs = config.applyStemming 
-                ? stemmer.stemDocuments(filteredDocs) 
-                : filteredDocs;
+        List<List<String>> stemmedDocs = config.applyStemming
+                ? applyStage(workers, bounds, documentTokens,
+                        chunk -> (i, tokens) -> stemmer.stemInPlace(tokens, chunkPools[chunk]))
+                : documentTokens;
         System.out.println("  ✓ Completed: Applied Porter Stemmer\n");
         
         // Step 5: Vocabulary building and integer encoding
         System.out.println("[Step 5/7] Vocabulary Construction & Integer Encoding...");
-        vocabulary.buildFromDocuments(stemmedDocs);
-        List<List<Integer>> integerSequences = encoder.encodeAll(stemmedDocs);
+        // Các bước sau chỉ quét mảng term id phẳng, không duyệt lại token chuỗi
+        // Thống kê (tần suất, df, cf) được đếm một lần và dùng chung cho mọi bước
+        ColumnarCorpus corpus = ColumnarCorpus.fromDocuments(stemmedDocs);
+        CorpusStatistics statistics = CorpusStatistics.of(corpus);
+        vocabulary.buildFromStatistics(statistics);
+        List<int[]> integerSequences = config.outputs.contains(Output.SEQUENCES)
+                ? applyStage(workers, bounds, stemmedDocs, chunk -> (i, tokens) -> encoder.encodeToArray(tokens))
+                : null;
         System.out.println("  ✓ Completed: Encoded to integer sequences\n");
         
-        // Step 6: BoW vectorization
-        System.out.println("[Step 6/7] Bag-of-Words Vectorization...");
-        bowVectorizer.fit(stemmedDocs);
-        List<Map<Integer, Double>> bowVectors = bowVectorizer.transform(stemmedDocs);
-        System.out.println("  ✓ Completed: Generated BoW vectors\n");
-        
-        // Step 7: TF-IDF vectorization
-        System.out.println("[Step 7/7] TF-IDF Vectorization...");
-        tfidfVectorizer.fit(stemmedDocs);
-        List<Map<Integer, Double>> tfidfVectors = tfidfVectorizer.transform(stemmedDocs);
+        // Step 6-7: Independent branches over the shared, read-only statistics
+        //   bow        (BoW CSR matrix)
+        //   tfidf      (TF-IDF CSR matrix)
+        //   calculator (all TF/IDF formulas)
+        // Chỉ chạy các nhánh có output được chọn; đồng thời trên cùng pool khi song song
+        System.out.println("[Step 6-7/7] Bag-of-Words, TF-IDF & Formula Calculation (concurrent branches)...");
+        Executor branchExecutor = workers != null ? workers : Runnable::run;
+        Map<String, Double> branchTimings = new ConcurrentHashMap<>();
         
+        CompletableFuture<SparseMatrix> bowBranch = !config.outputs.contains(Output.BAG_OF_WORDS) ? null
+                : branch("bow", branchTimings, branchExecutor, () -> {
+                    bowVectorizer.fit(corpus);
+                    bowVectorizer.prepare(statistics);
+                    return SparseMatrix.vstack(runChunks(workers, bounds, (chunk, from, to) ->
+                            bowVectorizer.transform(statistics, from, to)));
+                });
+        CompletableFuture<SparseMatrix> tfidfBranch = !config.outputs.contains(Output.TF_IDF) ? null
+                : branch("tfidf", branchTimings, branchExecutor, () -> {
+                    tfidfVectorizer.fit(statistics);
+                    tfidfVectorizer.prepare(statistics);
+                    return SparseMatrix.vstack(runChunks(workers, bounds, (chunk, from, to) ->
+                            tfidfVectorizer.transform(statistics, from, to)));
+                });
         // Also calculate all TF-IDF formulas using the shared vocabulary
-        tfidfCalculator.fit(stemmedDocs, vocabulary);
-        System.out.println("  ✓ Completed: Generated TF-IDF vectors and all formula calculations\n");
+        CompletableFuture<TFIDFCalculator> calculatorBranch = !config.outputs.contains(Output.TFIDF_FORMULAS) ? null
+                : branch("calculator", branchTimings, branchExecutor, () -> {
+                    tfidfCalculator.fit(statistics, vocabulary);
+                    return tfidfCalculator;
+                });
+        
+        SparseMatrix bowVectors = join(bowBranch);
+        SparseMatrix tfidfVectors = join(tfidfBranch);
+        TFIDFCalculator calculator = join(calculatorBranch);
+        List<String> computed = config.outputs.stream()
+                .filter(output -> output != Output.SEQUENCES)
+                .map(Output::getDescription)
+                .collect(Collectors.toList());
+        System.out.println("  ✓ Completed: " + (computed.isEmpty() ? "no vector outputs selected"
+                : "Generated " + String.join(", ", computed)));
+        for (String name : BRANCHES) {
+            if (branchTimings.containsKey(name)) {
+                System.out.printf("    %-10s : %.1f ms%n", name, branchTimings.get(name));
+            }
+        }
+        System.out.println();
+        
+        // Đối tượng theo tài liệu (DocumentSequence, SequenceVector) chỉ được tạo khi truy cập
+        List<DocumentSequence> sequences = integerSequences == null ? null
+                : new SequenceView(rawDocuments, stemmedDocs, integerSequences, originalTokenCounts, preprocessedDocs);
+        List<SequenceVector> bowSequenceVectors = bowVectors == null ? null
+                : new RowView(bowVectors, SequenceVector.VectorizationType.BAG_OF_WORDS,
+                        bowVectorizer.getVocabularySize());
+        List<SequenceVector> tfidfSequenceVectors = tfidfVectors == null ? null
+                : new RowView(tfidfVectors, SequenceVector.VectorizationType.TF_IDF,
+                        tfidfVectorizer.getVocabularySize());
+        
+        System.out.println("=".repeat(80));
+        System.out.println("PIPELINE EXECUTION COMPLETED SUCCESSFULLY");
+        System.out.println("=".repeat(80) + "\n");
+        
+        return new PipelineResult(rawDocuments.size(), sequences, bowSequenceVectors, tfidfSequenceVectors,
+                integerSequences, bowVectors, tfidfVectors, statistics, vocabulary, calculator, config,
+                orderedTimings(branchTimings));
+    }
+    
+    /**
+     * Start one branch of the step 6-7 DAG, recording its wall time in milliseconds
+     */
+    private static <T> CompletableFuture<T> branch(String name, Map<String, Double> timings,
+                                                   Executor executor, Supplier<T> body) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T result = body.get();
+            timings.put(name, (System.nanoTime() - start) / 1_000_000.0);
+            return result;
+        }, executor);
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+    
+    private static Map<String, Double> orderedTimings(Map<String, Double> timings) {
+        Map<String, Double> ordered = new LinkedHashMap<>();
+        for (String name : BRANCHES) {
+            if (timings.containsKey(name)) {
+                ordered.put(name, timings.get(name));
+            }
+        }
+        return Collections.unmodifiableMap(ordered);
+    }
+    
+    /**
+     * Preprocess → tokenize → filter, fused into one per-document function
+     * Records the token count before filtering, the only thing reporting needs from it.
+     */
+    private DocumentStage<String, List<String>> analysisStage(TokenPool pool, int[] originalTokenCounts) {
+        DocumentStage<String, List<String>> tokenize = (i, raw) -> {
+            List<String> tokens = tokenizer.tokenize(raw, preprocessor, pool);
+            originalTokenCounts[i] = tokens.size();
+            return tokens;
+        };
+        return config.removeStopWords
+                ? tokenize.andThen((i, tokens) -> stopWordFilter.filter(tokens, pool))
+                : tokenize;
+    }
+    
+    /**
+     * Apply a document stage to every input, chunk by chunk, keeping document order
+     * @param stageForChunk Creates the stage of a chunk (chunk-local state such as a token pool)
+     */
+    private static <I, O> List<O> applyStage(ForkJoinPool workers, int[] bounds, List<I> inputs,
+                                             IntFunction<DocumentStage<I, O>> stageForChunk) {
+        return concat(runChunks(workers, bounds, (chunk, from, to) -> {
+            DocumentStage<I, O> stage = stageForChunk.apply(chunk);
+            List<O> outputs = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                outputs.add(stage.apply(i, inputs.get(i)));
+            }
+            return outputs;
+        }));
+    }
+    
+    /**
+     * Read-only list of DocumentSequence objects, built on access from the compact outputs
+     * Nothing is cached: a document that is never read never gets an object.
+     */
+    private static final class SequenceView extends AbstractList<DocumentSequence> implements RandomAccess {
+        private final List<String> rawDocuments;
+        private final List<List<String>> tokens;
+        private final List<int[]> integerSequences;
+        private final int[] originalTokenCounts;
+        private final List<String> preprocessedDocs;
+        
+        SequenceView(List<String> rawDocuments, List<List<String>> tokens, List<int[]> integerSequences,
+                     int[] originalTokenCounts, List<String> preprocessedDocs) {
+            this.rawDocuments = rawDocuments;
+            this.tokens = tokens;
+            this.integerSequences = integerSequences;
+            this.originalTokenCounts = originalTokenCounts;
+            this.preprocessedDocs = preprocessedDocs;
+        }
         
-        // Build DocumentSequence objects
-        List<DocumentSequence> sequences = new ArrayList<>(rawDocuments.size());
-        for (int i = 0; i < rawDocuments.size(); i++) {
-            DocumentSequence seq = new DocumentSequence.Builder()
+        @Override
+        public DocumentSequence get(int i) {
+            DocumentSequence.Builder seq = new DocumentSequence.Builder()
                     .documentId("doc_" + i)
                     .originalText(rawDocuments.get(i))
-                    .tokens(stemmedDocs.get(i))
-                    .integerSequence(integerSequences.get(i))
-                    .metadata("preprocessed", preprocessedDocs.get(i))
-                    .metadata("original_token_count", tokenizedDocs.get(i).size())
-                    .metadata("filtered_token_count", stemmedDocs.get(i).size())
+                    .tokens(tokens.get(i))
+                    .integerSequence(integerSequences.get(i));
+            if (preprocessedDocs != null) {
+                seq.metadata("preprocessed", preprocessedDocs.get(i));
+            }
+            return seq
+                    .metadata("original_token_count", originalTokenCounts[i])
+                    .metadata("filtered_token_count", tokens.get(i).size())
                     .build();
-            sequences.add(seq);
         }
         
-        // Build SequenceVector objects
-        List<SequenceVector> bowSequenceVectors = new ArrayList<>(rawDocuments.size());
-        List<SequenceVector> tfidfSequenceVectors = new ArrayList<>(rawDocuments.size());
+        @Override
+        public int size() {
+            return integerSequences.size();
+        }
+    }
+    
+    /**
+     * Read-only list of SequenceVector row views over a CSR matrix, built on access
+     */
+    private static final class RowView extends AbstractList<SequenceVector> implements RandomAccess {
+        private final SparseMatrix matrix;
+        private final SequenceVector.VectorizationType type;
+        private final int vocabularySize;
+        
+        RowView(SparseMatrix matrix, SequenceVector.VectorizationType type, int vocabularySize) {
+            this.matrix = matrix;
+            this.type = type;
+            this.vocabularySize = vocabularySize;
+        }
         
-        for (int i = 0; i < rawDocuments.size(); i++) {
-            SequenceVector bowVec = new SequenceVector.Builder()
-                    .documentId("doc_" + i)
-                    .sparseVector(bowVectors.get(i))
-                    .type(SequenceVector.VectorizationType.BAG_OF_WORDS)
-                    .metadata("vocabulary_size", bowVectorizer.getVocabularySize())
-                    .build();
-            bowSequenceVectors.add(bowVec);
-            
-            SequenceVector tfidfVec = new SequenceVector.Builder()
+        @Override
+        public SequenceVector get(int i) {
+            return new SequenceVector.Builder()
                     .documentId("doc_" + i)
-                    .sparseVector(tfidfVectors.get(i))
-                    .type(SequenceVector.VectorizationType.TF_IDF)
-                    .metadata("vocabulary_size", tfidfVectorizer.getVocabularySize())
+                    .sparseRow(matrix, i)
+                    .type(type)
+                    .metadata("vocabulary_size", vocabularySize)
                     .build();
-            tfidfSequenceVectors.add(tfidfVec);
         }
         
-        System.out.println("=".repeat(80));
-        System.out.println("PIPELINE EXECUTION COMPLETED SUCCESSFULLY");
-        System.out.println("=".repeat(80) + "\n");
+        @Override
+        public int size() {
+            return matrix.getRowCount();
+        }
+    }
+    
+    /**
+     * Boundaries of contiguous document chunks: chunk c covers [bounds[c], bounds[c + 1])
+     * A single chunk when running sequentially; otherwise a few chunks per worker for load balance.
+     */
+    private int[] chunkBounds(int documents, ForkJoinPool workers) {
+        int chunks = workers == null ? 1
+                : Math.max(1, Math.min(documents, workers.getParallelism() * CHUNKS_PER_WORKER));
+        int[] bounds = new int[chunks + 1];
+        for (int c = 1; c <= chunks; c++) {
+            bounds[c] = (int) ((long) documents * c / chunks);
+        }
+        return bounds;
+    }
+    
+    /**
+     * Run a task on every chunk and return the results in chunk order
+     * Runs inline when there is no pool or only one chunk.
+     */
+    private static <T> List<T> runChunks(ForkJoinPool workers, int[] bounds, ChunkTask<T> task) {
+        int chunks = bounds.length - 1;
+        if (workers == null || chunks == 1) {
+            List<T> results = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                results.add(task.run(c, bounds[c], bounds[c + 1]));
+            }
+            return results;
+        }
         
-        return new PipelineResult(sequences, bowSequenceVectors, tfidfSequenceVectors, 
-                                  vocabulary, tfidfCalculator, config);
+        List<Callable<T>> calls = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            calls.add(() -> task.run(chunk, bounds[chunk], bounds[chunk + 1]));
+        }
+        try {
+            List<T> results = new ArrayList<>(chunks);
+            for (Future<T> future : workers.invokeAll(calls)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+    
+    private static <T> List<T> concat(List<List<T>> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int size = 0;
+        for (List<T> part : parts) {
+            size += part.size();
+        }
+        List<T> all = new ArrayList<>(size);
+        for (List<T> part : parts) {
+            all.addAll(part);
+        }
+        return all;
+    }
+    
+    private interface ChunkTask<T> {
+        T run(int chunk, int from, int to);
     }
     
     /**
@@ -192,6 +502,10 @@ public class SequencingPipeline {
         private int minFrequency = 1;
         private boolean binaryBoW = false;
         private boolean sublinearTf = false;
+        private boolean retainPreprocessedText = false;
+        private int parallelism = 1;
+        private int queueCapacity = PipelinedExecutor.DEFAULT_QUEUE_CAPACITY;
+        private EnumSet<Output> outputs = EnumSet.allOf(Output.class);
         
         public PipelineConfiguration setLowercase(boolean lowercase) {
             this.lowercase = lowercase;
@@ -218,6 +532,155 @@ public class SequencingPipeline {
             return this;
         }
         
+        /**
+         * Keep the cleaned text of every document as "preprocessed" metadata
+         * Off by default: the fused tokenizer never builds it, and the HTML report
+         * recomputes it only for the documents it displays.
+         */
+        public PipelineConfiguration setRetainPreprocessedText(boolean retainPreprocessedText) {
+            this.retainPreprocessedText = retainPreprocessedText;
+            return this;
+        }
+        
+        /**
+         * Number of worker threads for the per-document steps (default 1 = sequential)
+         * Output does not depend on this setting.
+         */
+        public PipelineConfiguration setParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        public int getParallelism() {
+            return parallelism;
+        }
+        
+        /**
+         * Maximum documents in flight between the stages of the streaming pipeline
+         * Bounds its memory; the reader blocks when the consumer falls behind.
+         */
+        public PipelineConfiguration setQueueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("queueCapacity must be at least 1: " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        /**
+         * Choose which outputs execute() computes (default: all)
+         * E.g. a job that only needs BoW vectors skips encoding, TF-IDF and the formula calculator.
+         */
+        public PipelineConfiguration setOutputs(Output first, Output... rest) {
+            this.outputs = EnumSet.of(first, rest);
+            return this;
+        }
+        
+        public Set<Output> getOutputs() {
+            return EnumSet.copyOf(outputs);
+        }
+        
+        public boolean isRemoveStopWords() {
+            return removeStopWords;
+        }
+        
+        public boolean isApplyStemming() {
+            return applyStemming;
+        }
+        
+        public int getMinTokenLength() {
+            return minTokenLength;
+        }
+        
+        public int getMinFrequency() {
+            return minFrequency;
+        }
+        
+        public boolean isBinaryBoW() {
+            return binaryBoW;
+        }
+        
+        public boolean isSublinearTf() {
+            return sublinearTf;
+        }
+        
+        TextPreprocessor createPreprocessor() {
+            return createPreprocessor(true);
+        }
+        
+        TextPreprocessor createPreprocessor(boolean collectProtectedWords) {
+            return new TextPreprocessor.Builder()
+                    .convertToLowercase(lowercase)
+                    .removeHtmlTags(removeHtml)
+                    .removeUrls(removeUrls)
+                    .removeEmails(removeEmails)
+                    .removeNonWords(removePunctuation)
+                    .collectProtectedWords(collectProtectedWords)
+                    .build();
+        }
+        
+        /**
+         * Write the settings that affect fitting (the keys of {@link #toMap()})
+         */
+        void writeTo(DataOutput out) throws IOException {
+            out.writeBoolean(lowercase);
+            out.writeBoolean(removeHtml);
+            out.writeBoolean(removeUrls);
+            out.writeBoolean(removeEmails);
+            out.writeBoolean(removePunctuation);
+            out.writeBoolean(removeStopWords);
+            out.writeBoolean(applyStemming);
+            out.writeInt(minTokenLength);
+            out.writeInt(minFrequency);
+            out.writeBoolean(binaryBoW);
+            out.writeBoolean(sublinearTf);
+        }
+        
+        /**
+         * Read settings written by {@link #writeTo(DataOutput)}; runtime settings keep their defaults
+         */
+        static PipelineConfiguration readFrom(DataInput in) throws IOException {
+            PipelineConfiguration config = new PipelineConfiguration();
+            config.lowercase = in.readBoolean();
+            config.removeHtml = in.readBoolean();
+            config.removeUrls = in.readBoolean();
+            config.removeEmails = in.readBoolean();
+            config.removePunctuation = in.readBoolean();
+            config.removeStopWords = in.readBoolean();
+            config.applyStemming = in.readBoolean();
+            config.minTokenLength = in.readInt();
+            config.minFrequency = in.readInt();
+            config.binaryBoW = in.readBoolean();
+            config.sublinearTf = in.readBoolean();
+            return config;
+        }
+        
+        /**
+         * Independent copy of the settings that affect fitting; runtime settings keep their defaults
+         */
+        PipelineConfiguration copyFitSettings() {
+            PipelineConfiguration copy = new PipelineConfiguration();
+            copy.lowercase = lowercase;
+            copy.removeHtml = removeHtml;
+            copy.removeUrls = removeUrls;
+            copy.removeEmails = removeEmails;
+            copy.removePunctuation = removePunctuation;
+            copy.removeStopWords = removeStopWords;
+            copy.applyStemming = applyStemming;
+            copy.minTokenLength = minTokenLength;
+            copy.minFrequency = minFrequency;
+            copy.binaryBoW = binaryBoW;
+            copy.sublinearTf = sublinearTf;
+            return copy;
+        }
+        
         public Map<String, Object> toMap() {
             Map<String, Object> configMap = new LinkedHashMap<>();
             configMap.put("lowercase", lowercase);
@@ -239,12 +702,19 @@ public class SequencingPipeline {
      * Results from pipeline execution
      */
     public static class PipelineResult {
+        private final int documentCount;
         private final List<DocumentSequence> sequences;
         private final List<SequenceVector> bowVectors;
         private final List<SequenceVector> tfidfVectors;
+        private final List<int[]> integerSequences;
+        private final SparseMatrix bowMatrix;
+        private final SparseMatrix tfidfMatrix;
+        private final CorpusStatistics statistics;
         private final Vocabulary vocabulary;
         private final TFIDFCalculator tfidfCalculator;
         private final PipelineConfiguration configuration;
+        private final Map<String, Double> branchTimings;
+        private TextPreprocessor reportPreprocessor;
         
         public PipelineResult(List<DocumentSequence> sequences,
                             List<SequenceVector> bowVectors,
@@ -252,24 +722,86 @@ public class SequencingPipeline {
                             Vocabulary vocabulary,
                             TFIDFCalculator tfidfCalculator,
                             PipelineConfiguration configuration) {
+            this(sequences.size(), sequences, bowVectors, tfidfVectors, null, null, null,
+                    tfidfCalculator.getCorpusStatistics(), vocabulary, tfidfCalculator, configuration,
+                    Collections.emptyMap());
+        }
+        
+        PipelineResult(int documentCount,
+                       List<DocumentSequence> sequences,
+                       List<SequenceVector> bowVectors,
+                       List<SequenceVector> tfidfVectors,
+                       List<int[]> integerSequences,
+                       SparseMatrix bowMatrix,
+                       SparseMatrix tfidfMatrix,
+                       CorpusStatistics statistics,
+                       Vocabulary vocabulary,
+                       TFIDFCalculator tfidfCalculator,
+                       PipelineConfiguration configuration,
+                       Map<String, Double> branchTimings) {
+            this.documentCount = documentCount;
             this.sequences = sequences;
             this.bowVectors = bowVectors;
             this.tfidfVectors = tfidfVectors;
+            this.integerSequences = integerSequences;
+            this.bowMatrix = bowMatrix;
+            this.tfidfMatrix = tfidfMatrix;
+            this.statistics = statistics;
             this.vocabulary = vocabulary;
             this.tfidfCalculator = tfidfCalculator;
             this.configuration = configuration;
+            this.branchTimings = branchTimings;
         }
         
+        public int getDocumentCount() {
+            return documentCount;
+        }
+        
+        /**
+         * Document sequences; objects are created on access (see {@link Output#SEQUENCES})
+         */
         public List<DocumentSequence> getSequences() {
-            return sequences;
+            return require(sequences, Output.SEQUENCES);
         }
         
+        /**
+         * BoW row views; objects are created on access (see {@link Output#BAG_OF_WORDS})
+         */
         public List<SequenceVector> getBowVectors() {
-            return bowVectors;
+            return require(bowVectors, Output.BAG_OF_WORDS);
         }
         
+        /**
+         * TF-IDF row views; objects are created on access (see {@link Output#TF_IDF})
+         */
         public List<SequenceVector> getTfidfVectors() {
-            return tfidfVectors;
+            return require(tfidfVectors, Output.TF_IDF);
+        }
+        
+        /**
+         * Integer sequence of a document, without building a DocumentSequence
+         * Returned without copying; callers must not modify it.
+         */
+        public int[] getIntegerSequence(int documentIndex) {
+            return integerSequences != null
+                    ? integerSequences.get(documentIndex)
+                    : getSequences().get(documentIndex).getIntegerArray();
+        }
+        
+        /**
+         * BoW vectors as one CSR matrix (one row per document)
+         */
+        public SparseMatrix getBowMatrix() {
+            return bowMatrix != null ? bowMatrix
+                    : toMatrix(getBowVectors());
+        }
+        
+        /**
+         * TF-IDF vectors as one CSR matrix (one row per document)
+         */
+        public SparseMatrix getTfidfMatrix() {
+            return tfidfMatrix != null ? tfidfMatrix
+                    : toMatrix(getTfidfVectors());
         }
         
         public Vocabulary getVocabulary() {
@@ -277,20 +809,85 @@ public class SequencingPipeline {
         }
         
         public TFIDFCalculator getTfidfCalculator() {
-            return tfidfCalculator;
+            return require(tfidfCalculator, Output.TFIDF_FORMULAS);
         }
         
         public PipelineConfiguration getConfiguration() {
             return configuration;
         }
         
+        /**
+         * Wall time of each branch after encoding, in milliseconds (see {@link SequencingPipeline#BRANCHES})
+         * Branches overlap when running in parallel, so the times do not add up to the step time.
+         */
+        public Map<String, Double> getBranchTimings() {
+            return branchTimings;
+        }
+        
+        /**
+         * Term statistics shared by the vocabulary, vectorizers and writers
+         */
+        public CorpusStatistics getCorpusStatistics() {
+            return statistics;
+        }
+        
+        /**
+         * Cleaned text of a document, from metadata if retained, otherwise recomputed
+         * @param documentIndex Index of the document
+         * @return Preprocessed text
+         */
+        public String getPreprocessedText(int documentIndex) {
+            DocumentSequence seq = getSequences().get(documentIndex);
+            Object retained = seq.getMetadata().get("preprocessed");
+            if (retained != null) {
+                return (String) retained;
+            }
+            if (reportPreprocessor == null) {
+                reportPreprocessor = configuration.createPreprocessor();
+            }
+            return reportPreprocessor.preprocess(seq.getOriginalText());
+        }
+        
         public void printSummary() {
             System.out.println("\n=== PIPELINE RESULTS SUMMARY ===");
-            System.out.println("Documents processed: " + sequences.size());
+            System.out.println("Documents processed: " + documentCount);
             System.out.println("Vocabulary size: " + vocabulary.getSize());
             System.out.println("\nConfiguration:");
             configuration.toMap().forEach((key, value) -> 
                 System.out.println("  " + key + ": " + value));
+            if (!branchTimings.isEmpty()) {
+                System.out.println("\nBranch timings:");
+                branchTimings.forEach((name, millis) -> 
+                    System.out.printf("  %s: %.1f ms%n", name, millis));
+            }
+        }
+        
+        private static <T> T require(T output, Output kind) {
+            if (output == null) {
+                throw new IllegalStateException("Output " + kind + " was not selected in the pipeline configuration");
+            }
+            return output;
+        }
+        
+        /**
+         * CSR matrix of vectors supplied through the public constructor. Feature indices are
+         * term ids, not vocabulary ids, so the column count is the vectorizer's
+         * vocabulary_size (or the largest index + 1 when that metadata is missing).
+         */
+        private static SparseMatrix toMatrix(List<SequenceVector> vectors) {
+            List<Map<Integer, Double>> rows = new ArrayList<>(vectors.size());
+            int columnCount = vectors.isEmpty() ? 0 : vectors.get(0).getDimension();
+            boolean inferColumns = columnCount == 0;
+            for (SequenceVector vector : vectors) {
+                Map<Integer, Double> row = vector.getSparseVector();
+                rows.add(row);
+                if (inferColumns) {
+                    for (Integer column : row.keySet()) {
+                        columnCount = Math.max(columnCount, column + 1);
+                    }
+                }
+            }
+            return SparseMatrix.fromRows(rows, columnCount);
         }
     }
 }
@@ -0,0 +1,372 @@
+package com.example.sequencer.pipeline;
+
+import com.example.sequencer.encoding.Vocabulary;
+import com.example.sequencer.io.DocumentReader;
+import com.example.sequencer.io.SequenceWriter;
+import com.example.sequencer.model.SequenceVector;
+import com.example.sequencer.model.SparseMatrix;
+import com.example.sequencer.model.TermTable;
+import com.example.sequencer.pipeline.SequencingPipeline.PipelineConfiguration;
+import com.example.sequencer.preprocessing.PorterStemmer;
+import com.example.sequencer.preprocessing.StemmerConfig;
+import com.example.sequencer.preprocessing.StopWordFilter;
+import com.example.sequencer.preprocessing.TextPreprocessor;
+import com.example.sequencer.preprocessing.TokenPool;
+import com.example.sequencer.preprocessing.Tokenizer;
+import com.example.sequencer.vectorization.TfidfVectorizer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * StreamingPipeline - Out-of-core BoW / TF-IDF vectorization
+ * Documents are streamed from disk twice instead of being loaded as a list:
+ *   Pass 1: count term ids, document frequencies and collection frequencies
+ *   Pass 2: re-read each document and write its BoW and TF-IDF vectors immediately
+ *
+ * Each pass runs as concurrent stages (see {@link PipelinedExecutor}): a reader thread
+ * streams documents, parallelism workers preprocess/tokenize/filter/stem them (and build
+ * the vectors in pass 2), and the calling thread counts or writes them in input order.
+ *
+ * Peak heap is bounded by the number of distinct terms plus the documents in flight
+ * (queue capacity), not by the corpus size. Feature indices, IDF and L2 normalization
+ * are the same as {@link SequencingPipeline}, so the vector files are identical to the
+ * in-memory ones.
+ */
+public class StreamingPipeline {
+
+    private final PipelineConfiguration config;
+    private final DocumentReader.DocumentFormat format;
+    private final Tokenizer tokenizer;
+    private final StopWordFilter stopWordFilter;
+    private final PipelinedExecutor executor;
+
+    public StreamingPipeline(PipelineConfiguration config) {
+        this(config, DocumentReader.DocumentFormat.SINGLE_DOCUMENT);
+    }
+
+    public StreamingPipeline(PipelineConfiguration config, DocumentReader.DocumentFormat format) {
+        this.config = config;
+        this.format = format;
+        this.tokenizer = new Tokenizer(config.getMinTokenLength());
+        this.stopWordFilter = new StopWordFilter();
+        this.executor = new PipelinedExecutor(config.getParallelism(), config.getQueueCapacity());
+    }
+
+    /**
+     * Stream the input files twice and write BoW and TF-IDF vectors as they are computed.
+     * Each call starts from empty term statistics, so an instance can be reused.
+     * @param inputFiles Input files, read in list order (document ids follow this order)
+     * @param bowOutputPath BoW vector file, or null to skip
+     * @param tfidfOutputPath TF-IDF vector file, or null to skip
+     * @return Summary of the run
+     * @throws IOException if reading or writing fails
+     */
+    public StreamingResult execute(List<File> inputFiles, String bowOutputPath, String tfidfOutputPath)
+            throws IOException {
+        // Mỗi lần chạy có trạng thái riêng: gọi execute() nhiều lần cho kết quả như nhau
+        return new Run().execute(inputFiles, bowOutputPath, tfidfOutputPath);
+    }
+
+    /**
+     * State of one execute() call: term ids, frequencies, known words and the
+     * preprocessor / stemmer whose protected and known words belong to this input
+     */
+    private final class Run {
+        private final TextPreprocessor preprocessor = config.createPreprocessor();
+        private final PorterStemmer stemmer = new PorterStemmer();
+        private final TokenPool tokenPool = new TokenPool();
+
+        // Term id theo thứ tự xuất hiện đầu tiên (giống ColumnarCorpus)
+        private final TermTable terms = new TermTable(1024);
+        private int[] documentFrequencies = new int[64];
+        private int[] collectionFrequencies = new int[64];
+
+        // Bộ đếm tạm cho một tài liệu (chỉ luồng consumer dùng ở lượt 1)
+        private int[] counts = new int[64];
+        private int[] distinctTerms = new int[64];
+        private int distinctCount;
+
+        StreamingResult execute(List<File> inputFiles, String bowOutputPath, String tfidfOutputPath)
+                throws IOException {
+            System.out.println("\n" + "=".repeat(80));
+            System.out.println("STREAMING (OUT-OF-CORE) VECTORIZATION PIPELINE");
+            System.out.println("=".repeat(80));
+            System.out.println("Streaming " + inputFiles.size() + " file(s)...\n");
+
+            // Stemmer cần tập từ đã biết của cả corpus trước khi stem tài liệu đầu tiên,
+            // nên khi bật stemming có thêm một lượt chỉ tách từ (không đếm)
+            if (config.isApplyStemming()) {
+                System.out.println("[Pass 0] Collecting known words for the stemmer...");
+                // TokenPool không thread-safe: worker tách từ, consumer đưa vào pool
+                process(inputFiles, raw -> tokenizer.tokenize(raw, preprocessor), tokens -> {
+                    for (String token : tokens) {
+                        tokenPool.intern(token);
+                    }
+                });
+                stemmer.setConfig(new StemmerConfig.Builder()
+                        .protectedWords(preprocessor.getProtectedWords())
+                        .knownWords(tokenPool.toWordTable())
+                        .build());
+                System.out.println("  ✓ Completed: " + tokenPool.size() + " known words\n");
+            }
+
+            // Pass 1: document frequencies and collection frequencies
+            System.out.println("[Pass 1/2] Counting term statistics...");
+            long[] totals = new long[2];
+            process(inputFiles, this::analyze, tokens -> {
+                countDocument(tokens);
+                for (int j = 0; j < distinctCount; j++) {
+                    int term = distinctTerms[j];
+                    documentFrequencies[term]++;
+                    collectionFrequencies[term] += counts[term];
+                    counts[term] = 0;
+                }
+                totals[0]++;
+                totals[1] += tokens.size();
+            });
+            int documentCount = (int) totals[0];
+            int featureCount = terms.size();
+            System.out.println("  ✓ Completed: " + documentCount + " documents, " + totals[1] + " tokens, "
+                    + featureCount + " distinct terms\n");
+
+            Vocabulary vocabulary = new Vocabulary(config.getMinFrequency(), "<UNK>", "<PAD>");
+            vocabulary.buildFromFrequencies(terms.asList(), collectionFrequencies);
+
+            // Smooth-idf như TfidfVectorizer: log((N + 1) / (df + 1)) + 1
+            double[] idf = new double[featureCount];
+            for (int t = 0; t < featureCount; t++) {
+                idf[t] = TfidfVectorizer.smoothIdf(documentCount, documentFrequencies[t]);
+            }
+
+            // Pass 2: vectors are written document by document
+            System.out.println("[Pass 2/2] Writing BoW and TF-IDF vectors...");
+            try (SequenceWriter.VectorStream bowStream = open(bowOutputPath);
+                 SequenceWriter.VectorStream tfidfStream = open(tfidfOutputPath)) {
+                boolean writeBow = bowStream != null;
+                boolean writeTfidf = tfidfStream != null;
+                int[] documentIndex = new int[1];
+                process(inputFiles, raw -> vectorize(analyze(raw), featureCount, idf, writeBow, writeTfidf), rows -> {
+                    String documentId = "doc_" + documentIndex[0]++;
+                    if (writeBow) {
+                        bowStream.write(rowVector(documentId, rows[0],
+                                SequenceVector.VectorizationType.BAG_OF_WORDS, featureCount));
+                    }
+                    if (writeTfidf) {
+                        tfidfStream.write(rowVector(documentId, rows[1],
+                                SequenceVector.VectorizationType.TF_IDF, featureCount));
+                    }
+                });
+            }
+            System.out.println("  ✓ Completed: Wrote " + documentCount + " vectors per output\n");
+
+            System.out.println("=".repeat(80));
+            System.out.println("STREAMING PIPELINE COMPLETED SUCCESSFULLY");
+            System.out.println("=".repeat(80) + "\n");
+
+            return new StreamingResult(documentCount, totals[1], featureCount, vocabulary);
+        }
+
+        /**
+         * Preprocess, tokenize, filter and stem one document (runs on the workers)
+         */
+        private List<String> analyze(String raw) {
+            List<String> tokens = tokenizer.tokenize(raw, preprocessor);
+            if (config.isRemoveStopWords()) {
+                tokens = stopWordFilter.filter(tokens);
+            }
+            if (config.isApplyStemming()) {
+                tokens = stemmer.stemAll(tokens);
+            }
+            return tokens;
+        }
+    
+        /**
+         * BoW and TF-IDF rows of one document (runs on the workers)
+         * Term ids are only read here; they were all assigned in pass 1.
+         * @return {BoW row, TF-IDF row}; an entry is null if that output is skipped
+         */
+        private SparseMatrix[] vectorize(List<String> tokens, int featureCount, double[] idf,
+                                         boolean bow, boolean tfidf) {
+            int[] ids = new int[tokens.size()];
+            int n = 0;
+            for (String token : tokens) {
+                int id = terms.lookup(token);
+                if (id < 0) {
+                    throw new IllegalStateException("Input changed between passes: unknown term \"" + token + "\"");
+                }
+                ids[n++] = id;
+            }
+            Arrays.sort(ids);
+        
+            SparseMatrix.Builder bowRow = bow ? new SparseMatrix.Builder(featureCount, n) : null;
+            SparseMatrix.Builder tfidfRow = tfidf ? new SparseMatrix.Builder(featureCount, n) : null;
+            for (int i = 0; i < n; ) {
+                int term = ids[i];
+                int count = 0;
+                for (; i < n && ids[i] == term; i++) {
+                    count++;
+                }
+                if (bow) {
+                    bowRow.add(term, config.isBinaryBoW() ? 1.0 : count);
+                }
+                if (tfidf) {
+                    double tf = config.isSublinearTf() ? 1.0 + Math.log(count) : (double) count / n;
+                    tfidfRow.add(term, tf * idf[term]);
+                }
+            }
+            return new SparseMatrix[] {
+                    bow ? bowRow.endRow().build() : null,
+                    tfidf ? tfidfRow.normalizeRowL2().endRow().build() : null
+            };
+        }
+
+        /**
+         * Count the terms of one document into counts / distinctTerms, assigning ids to new terms
+         * @param tokens Analyzed tokens
+         */
+        private void countDocument(List<String> tokens) {
+            distinctCount = 0;
+            for (String token : tokens) {
+                int id = terms.intern(token);
+                ensureTermCapacity(terms.size());
+                if (counts[id]++ == 0) {
+                    if (distinctCount == distinctTerms.length) {
+                        distinctTerms = Arrays.copyOf(distinctTerms, distinctCount * 2);
+                    }
+                    distinctTerms[distinctCount++] = id;
+                }
+            }
+        }
+
+        private void ensureTermCapacity(int termCount) {
+            if (termCount > counts.length) {
+                int capacity = Math.max(termCount, counts.length * 2);
+                counts = Arrays.copyOf(counts, capacity);
+                documentFrequencies = Arrays.copyOf(documentFrequencies, capacity);
+                collectionFrequencies = Arrays.copyOf(collectionFrequencies, capacity);
+            }
+        }
+    }
+
+    private static SequenceVector rowVector(String documentId, SparseMatrix row,
+                                            SequenceVector.VectorizationType type, int featureCount) {
+        return new SequenceVector.Builder()
+                .documentId(documentId)
+                .sparseRow(row, 0)
+                .type(type)
+                .metadata("vocabulary_size", featureCount)
+                .build();
+    }
+
+    private static SequenceWriter.VectorStream open(String outputPath) throws IOException {
+        return outputPath != null
+                ? new SequenceWriter(outputPath, SequenceWriter.OutputFormat.PLAIN_TEXT).openVectorStream()
+                : null;
+    }
+
+    /**
+     * Stream every document of the input files through the worker stage, in order
+     */
+    private <T> void process(List<File> inputFiles, Function<String, T> work, PipelinedExecutor.Sink<T> sink)
+            throws IOException {
+        try (FileDocumentIterator documents = new FileDocumentIterator(inputFiles)) {
+            executor.run(documents, work, sink);
+        }
+    }
+    
+    /**
+     * Documents of several files, one file stream open at a time (used by the reader thread)
+     */
+    private final class FileDocumentIterator implements Iterator<String>, Closeable {
+        private final Iterator<File> files;
+        private Stream<String> current;
+        private Iterator<String> documents = Collections.emptyIterator();
+        
+        FileDocumentIterator(List<File> inputFiles) {
+            this.files = inputFiles.iterator();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!documents.hasNext()) {
+                close();
+                if (!files.hasNext()) {
+                    return false;
+                }
+                try {
+                    current = new DocumentReader(files.next().getPath(), format).streamDocuments();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                documents = current.iterator();
+            }
+            return true;
+        }
+        
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return documents.next();
+        }
+        
+        @Override
+        public void close() {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+    
+    /**
+     * Summary of a streaming run (the vectors themselves are only on disk)
+     */
+    public static class StreamingResult {
+        private final int documentCount;
+        private final long tokenCount;
+        private final int featureCount;
+        private final Vocabulary vocabulary;
+
+        StreamingResult(int documentCount, long tokenCount, int featureCount, Vocabulary vocabulary) {
+            this.documentCount = documentCount;
+            this.tokenCount = tokenCount;
+            this.featureCount = featureCount;
+            this.vocabulary = vocabulary;
+        }
+
+        public int getDocumentCount() {
+            return documentCount;
+        }
+
+        public long getTokenCount() {
+            return tokenCount;
+        }
+
+        /**
+         * Number of BoW / TF-IDF features (distinct terms)
+         */
+        public int getFeatureCount() {
+            return featureCount;
+        }
+
+        public Vocabulary getVocabulary() {
+            return vocabulary;
+        }
+
+        public void printSummary() {
+            System.out.println("\n=== STREAMING RESULTS SUMMARY ===");
+            System.out.println("Documents processed: " + documentCount);
+            System.out.println("Tokens processed: " + tokenCount);
+            System.out.println("Features: " + featureCount);
+            System.out.println("Vocabulary size: " + vocabulary.getSize());
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.sequencer.preprocessing;
+
+/**
+ * CharArrayStemmer - Porter steps applied in place on a reusable char buffer
+ * Mirrors PorterStemmer's String engine rule for rule (including the protected-word
+ * and known-word checks in ensureMeaningful), but works like the classic reference
+ * implementation: suffixes are matched and replaced by moving an end index, and word
+ * lookups go through char-range tables, so a stem allocates at most its result.
+ *
+ * Buffers are per thread and the word tables are immutable, so one instance can
+ * serve concurrent callers.
+ */
+final class CharArrayStemmer {
+
+    private static final String[][] STEP2_SUFFIXES = {
+        {"ational", "ate"}, {"tional", "tion"}, {"enci", "ence"}, {"anci", "ance"},
+        {"izer", "ize"}, {"abli", "able"}, {"alli", "al"}, {"entli", "ent"},
+        {"eli", "e"}, {"ousli", "ous"}, {"ization", "ize"}, {"ation", "ate"},
+        {"ator", "ate"}, {"alism", "al"}, {"iveness", "ive"}, {"fulness", "ful"},
+        {"ousness", "ous"}, {"aliti", "al"}, {"iviti", "ive"}, {"biliti", "ble"}
+    };
+
+    private static final String[][] STEP3_SUFFIXES = {
+        {"icate", "ic"}, {"ative", ""}, {"alize", "al"},
+        {"iciti", "ic"}, {"ical", "ic"}, {"ful", ""}, {"ness", ""}
+    };
+
+    private static final String[] STEP4_SUFFIXES = {
+        "al", "ance", "ence", "er", "ic", "able", "ible", "ant",
+        "ement", "ment", "ent", "ion", "ou", "ism", "ate", "iti", "ous", "ive", "ize"
+    };
+
+    // Hậu tố nhóm theo ký tự cuối (giữ nguyên thứ tự ưu tiên trong mỗi nhóm)
+    private static final String[][][] STEP2_BY_LAST = byLastChar(STEP2_SUFFIXES);
+    private static final String[][][] STEP3_BY_LAST = byLastChar(STEP3_SUFFIXES);
+    private static final String[][][] STEP4_BY_LAST = byLastChar(wrap(STEP4_SUFFIXES));
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Stem a word (length >= 3)
+     * @param word Input word
+     * @param protectedWords Words that must not be stemmed
+     * @param knownWords Words seen in the corpus
+     * @return Stemmed word
+     */
+    String stem(String word, WordTable protectedWords, WordTable knownWords) {
+        String lowerWord = hasUpperOrNonAscii(word) ? word.toLowerCase() : word;
+        if (protectedWords.contains(lowerWord)) {
+            return lowerWord;
+        }
+
+        Scratch s = SCRATCH.get();
+        s.load(lowerWord);
+
+        step1a(s);
+        step1b(s);
+        step1c(s);
+        step2(s);
+        step3(s);
+        step4(s);
+        step5(s);
+
+        return ensureMeaningful(s, lowerWord, protectedWords, knownWords);
+    }
+
+    private static boolean hasUpperOrNonAscii(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ===== Porter steps (on s.word[0..s.length)) =====
+
+    private void step1a(Scratch s) {
+        if (s.endsWith("sses")) {
+            s.length -= 2;
+        } else if (s.endsWith("ies")) {
+            s.length -= 2;
+        } else if (s.endsWith("ss")) {
+            return;
+        } else if (s.endsWith("s")) {
+            s.length -= 1;
+        }
+    }
+
+    private void step1b(Scratch s) {
+        char[] w = s.word;
+        if (s.endsWith("eed")) {
+            if (measure(w, s.length - 3) > 0) {
+                s.length -= 1;
+            }
+        } else if (s.endsWith("ed")) {
+            if (containsVowel(w, s.length - 2)) {
+                s.length -= 2;
+                adjustStep1b(s);
+            }
+        } else if (s.endsWith("ing")) {
+            if (containsVowel(w, s.length - 3)) {
+                s.length -= 3;
+                adjustStep1b(s);
+            }
+        }
+    }
+
+    private void adjustStep1b(Scratch s) {
+        char[] w = s.word;
+        int len = s.length;
+        if (s.endsWith("at") || s.endsWith("bl") || s.endsWith("iz")) {
+            w[s.length++] = 'e';
+        } else if (endsWithDoubleConsonant(w, len)
+                && w[len - 1] != 'l' && w[len - 1] != 's' && w[len - 1] != 'z') {
+            s.length -= 1;
+        } else if (measure(w, len) == 1 && endsWithCVC(w, len)) {
+            w[s.length++] = 'e';
+        }
+    }
+
+    private void step1c(Scratch s) {
+        if (s.endsWith("y") && containsVowel(s.word, s.length - 1)) {
+            s.word[s.length - 1] = 'i';
+        }
+    }
+
+    private void step2(Scratch s) {
+        replaceSuffix(s, candidates(s, STEP2_BY_LAST));
+    }
+
+    private void step3(Scratch s) {
+        replaceSuffix(s, candidates(s, STEP3_BY_LAST));
+    }
+
+    private void replaceSuffix(Scratch s, String[][] suffixes) {
+        for (String[] suffix : suffixes) {
+            if (s.endsWith(suffix[0])) {
+                int stemEnd = s.length - suffix[0].length();
+                if (measure(s.word, stemEnd) > 0) {
+                    s.length = stemEnd;
+                    s.append(suffix[1]);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void step4(Scratch s) {
+        for (String[] suffix : candidates(s, STEP4_BY_LAST)) {
+            if (s.endsWith(suffix[0])) {
+                int stemEnd = s.length - suffix[0].length();
+                if (measure(s.word, stemEnd) > 1) {
+                    s.length = stemEnd;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void step5(Scratch s) {
+        char[] w = s.word;
+        if (s.endsWith("e")) {
+            int m = measure(w, s.length - 1);
+            if (m > 1 || (m == 1 && !endsWithCVC(w, s.length - 1))) {
+                s.length -= 1;
+                return;
+            }
+        }
+        if (s.length > 1 && endsWithDoubleConsonant(w, s.length) && w[s.length - 1] == 'l') {
+            if (measure(w, s.length) > 1) {
+                s.length -= 1;
+            }
+        }
+    }
+
+    private static String[][] candidates(Scratch s, String[][][] byLast) {
+        char last = s.length > 0 ? s.word[s.length - 1] : 0;
+        return last < byLast.length ? byLast[last] : byLast[0];
+    }
+
+    private static String[][][] byLastChar(String[][] suffixes) {
+        String[][][] table = new String[128][][];
+        for (char c = 0; c < table.length; c++) {
+            int count = 0;
+            for (String[] suffix : suffixes) {
+                if (suffix[0].charAt(suffix[0].length() - 1) == c) {
+                    count++;
+                }
+            }
+            table[c] = new String[count][];
+            count = 0;
+            for (String[] suffix : suffixes) {
+                if (suffix[0].charAt(suffix[0].length() - 1) == c) {
+                    table[c][count++] = suffix;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static String[][] wrap(String[] suffixes) {
+        String[][] wrapped = new String[suffixes.length][];
+        for (int i = 0; i < suffixes.length; i++) {
+            wrapped[i] = new String[] {suffixes[i]};
+        }
+        return wrapped;
+    }
+
+    // ===== ensureMeaningful (original in s.original, candidate in s.word) =====
+
+    private String ensureMeaningful(Scratch s, String lowerWord,
+                                    WordTable protectedWords, WordTable knownWords) {
+        char[] o = s.original;
+        int n = s.originalLength;
+        char[] c = s.word;
+        int len = s.length;
+
+        if (len == 0) {
+            return lowerWord;
+        }
+        if (len == n && regionEquals(c, o, len)) {
+            return lowerWord;
+        }
+        String known = knownWords.find(c, 0, len);
+        if (known != null || protectedWords.find(c, 0, len) != null) {
+            return known != null ? known : new String(c, 0, len);
+        }
+
+        // Ưu tiên chuẩn hoá dạng số nhiều → số ít
+        if (endsWith(o, n, "ies") && n > 4) {
+            int stem = n - 3;
+            if (isMeaningful(s.form(stem, "ie"), stem + 2)) {
+                return s.formString(stem + 2, knownWords);
+            }
+            if (isMeaningful(s.form(stem, "y"), stem + 1)) {
+                return s.formString(stem + 1, knownWords);
+            }
+        }
+
+        if (endsWith(o, n, "ves") && n > 4) {
+            int stem = n - 3;
+            char last = o[stem - 1];
+            if (last == 'i' && isMeaningful(s.form(stem, "fe"), stem + 2)) {
+                return s.formString(stem + 2, knownWords);
+            }
+            if ((last == 'o' || last == 'u') && isMeaningful(s.form(stem, "ve"), stem + 2)) {
+                return s.formString(stem + 2, knownWords);
+            }
+            if (isMeaningful(s.form(stem, "f"), stem + 1)
+                    && (last == 'l' || last == 'r' || last == 'a' || last == 'e' || last == 'f')) {
+                return s.formString(stem + 1, knownWords);
+            }
+            if (isMeaningful(s.form(stem, "ve"), stem + 2)) {
+                return s.formString(stem + 2, knownWords);
+            }
+            if (isMeaningful(s.form(stem, "f"), stem + 1)) {
+                return s.formString(stem + 1, knownWords);
+            }
+            if (isMeaningful(s.form(stem, "fe"), stem + 2)) {
+                return s.formString(stem + 2, knownWords);
+            }
+        }
+
+        if (endsWith(o, n, "es") && n > 3) {
+            int stem = n - 2;
+            boolean preferE = shouldPreferSilentE(o, stem);
+            if (preferE && isMeaningful(s.form(stem, "e"), stem + 1)) {
+                return s.formString(stem + 1, knownWords);
+            }
+            if (isMeaningful(o, stem)) {
+                return s.originalPrefix(stem, knownWords);
+            }
+            if (!preferE && isMeaningful(s.form(stem, "e"), stem + 1)) {
+                return s.formString(stem + 1, knownWords);
+            }
+        }
+
+        if (endsWith(o, n, "s") && n > 3 && !endsWith(o, n, "ss")) {
+            int stem = n - 1;
+            if (isMeaningful(o, stem)) {
+                return s.originalPrefix(stem, knownWords);
+            }
+            if (isMeaningful(s.form(stem, "e"), stem + 1)) {
+                return s.formString(stem + 1, knownWords);
+            }
+        }
+
+        if (endsWith(o, n, "ing") && n > 4) {
+            int base = n - 3;
+            if (base > 2 && endsWithDoubleConsonant(o, base)) {
+                if (isMeaningful(o, base - 1)) {
+                    return s.originalPrefix(base - 1, knownWords);
+                }
+            }
+            boolean preferE = shouldPreferSilentE(o, base);
+            if (base <= 3 && preferE && isMeaningful(s.form(base, "e"), base + 1)) {
+                return s.formString(base + 1, knownWords);
+            }
+            if (isMeaningful(o, base)) {
+                return s.originalPrefix(base, knownWords);
+            }
+            if (preferE && isMeaningful(s.form(base, "e"), base + 1)) {
+                return s.formString(base + 1, knownWords);
+            }
+            if (isMeaningful(s.form(base, "e"), base + 1)) {
+                return s.formString(base + 1, knownWords);
+            }
+        }
+
+        if (endsWith(o, n, "ed") && n > 4) {
+            int stem = n - 2;
+            if (isMeaningful(o, stem)) {
+                return s.originalPrefix(stem, knownWords);
+            }
+            if (o[stem - 1] == 'i' && stem > 2) {
+                if (isMeaningful(s.form(stem - 1, "y"), stem)) {
+                    return s.formString(stem, knownWords);
+                }
+            }
+        }
+
+        if (endsWith(o, n, "e") && c[len - 1] != 'e' && isMeaningful(o, n)) {
+            return lowerWord;
+        }
+
+        if (n == len + 2 && regionEquals(c, o, len)
+                && ((o[len] == 'e' || o[len] == 'o') && o[len + 1] == 'r')
+                && known == null) {
+            return lowerWord;
+        }
+
+        if (endsWith(o, n, "ll") && c[len - 1] == 'l' && n == len + 1) {
+            return lowerWord;
+        }
+
+        if (!isMeaningful(c, len)) {
+            return isMeaningful(o, n) ? lowerWord : new String(c, 0, len);
+        }
+
+        return new String(c, 0, len);
+    }
+
+    // ===== Character helpers =====
+
+    private static boolean isConsonant(char c) {
+        return c != 'a' && c != 'e' && c != 'i' && c != 'o' && c != 'u';
+    }
+
+    private static boolean containsVowel(char[] w, int end) {
+        for (int i = 0; i < end; i++) {
+            if (!isConsonant(w[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean endsWithDoubleConsonant(char[] w, int end) {
+        if (end < 2) return false;
+        return w[end - 1] == w[end - 2] && isConsonant(w[end - 1]);
+    }
+
+    private static boolean endsWithCVC(char[] w, int end) {
+        if (end < 3) return false;
+        char last = w[end - 1];
+        return isConsonant(w[end - 3]) && !isConsonant(w[end - 2]) && isConsonant(last)
+                && last != 'w' && last != 'x' && last != 'y';
+    }
+
+    private static int measure(char[] w, int end) {
+        int measure = 0;
+        boolean prevWasVowel = false;
+        for (int i = 0; i < end; i++) {
+            boolean isVowel = !isConsonant(w[i]);
+            if (isVowel && !prevWasVowel) {
+                measure++;
+            }
+            prevWasVowel = isVowel;
+        }
+        return measure;
+    }
+
+    private static boolean isMeaningful(char[] w, int len) {
+        if (len < 3) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!Character.isLetter(w[i])) {
+                return false;
+            }
+        }
+        if (!containsVowel(w, len)) {
+            return false;
+        }
+        if (w[len - 1] == 'i') {
+            char prev = w[len - 2];
+            return prev == 'a' || prev == 'e' || prev == 'o';
+        }
+        return true;
+    }
+
+    private static boolean shouldPreferSilentE(char[] w, int len) {
+        if (len == 0) {
+            return false;
+        }
+        char lastChar = w[len - 1];
+        if (len >= 2) {
+            char prev = w[len - 2];
+            if ((prev == 'c' || prev == 's') && lastChar == 'h' || prev == 's' && lastChar == 's') {
+                return false;
+            }
+        }
+        if (lastChar == 'x' || lastChar == 'z') {
+            return false;
+        }
+        if (lastChar == 's') {
+            if (len >= 2) {
+                char prev = w[len - 2];
+                if (prev == 'u' || prev == 's') {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return lastChar == 'd' || lastChar == 'g' || lastChar == 'k' || lastChar == 'l'
+            || lastChar == 'm' || lastChar == 'p' || lastChar == 'r'
+            || lastChar == 't' || lastChar == 'v' || lastChar == 'c';
+    }
+
+    private static boolean endsWith(char[] w, int len, String suffix) {
+        int start = len - suffix.length();
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (w[start + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(char[] a, char[] b, int len) {
+        for (int i = 0; i < len; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Per-thread working buffers
+     * word: candidate being stemmed; original: lowercased input; alt: alternative forms
+     */
+    private static final class Scratch {
+        char[] word = new char[32];
+        char[] original = new char[32];
+        char[] alt = new char[32];
+        int length;
+        int originalLength;
+
+        void load(String lowerWord) {
+            int n = lowerWord.length();
+            if (word.length < n + 2) {
+                int capacity = Math.max(n + 2, word.length * 2);
+                word = new char[capacity];
+                original = new char[capacity];
+                alt = new char[capacity];
+            }
+            lowerWord.getChars(0, n, word, 0);
+            lowerWord.getChars(0, n, original, 0);
+            length = n;
+            originalLength = n;
+        }
+
+        boolean endsWith(String suffix) {
+            return CharArrayStemmer.endsWith(word, length, suffix);
+        }
+
+        void append(String suffix) {
+            suffix.getChars(0, suffix.length(), word, length);
+            length += suffix.length();
+        }
+
+        /**
+         * Build original[0..stem) + suffix in the alternative buffer
+         */
+        char[] form(int stem, String suffix) {
+            System.arraycopy(original, 0, alt, 0, stem);
+            suffix.getChars(0, suffix.length(), alt, stem);
+            return alt;
+        }
+
+        String formString(int len, WordTable knownWords) {
+            String known = knownWords.find(alt, 0, len);
+            return known != null ? known : new String(alt, 0, len);
+        }
+
+        String originalPrefix(int len, WordTable knownWords) {
+            String known = knownWords.find(original, 0, len);
+            return known != null ? known : new String(original, 0, len);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.sequencer.preprocessing;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -14,38 +13,96 @@ import java.util.stream.Collectors;
  * 
  * This is a simplified implementation focusing on the most common rules.
  * For production use, consider using a full implementation or library.
+ * 
+ * stem() is thread-safe: it reads one immutable StemmerConfig snapshot per call.
  */
 public class PorterStemmer {
     
-    // Danh sách từ không nên stem (động, được cập nhật từ bên ngoài)
-    private Set<String> protectedWords;
-    // Tập các từ đã xuất hiện trong corpus (dùng để xác thực kết quả)
-    private Set<String> knownWords;
+    public static final int DEFAULT_CACHE_CAPACITY = 1 << 16;
+    
+    /**
+     * Stemming engine: the original String-based rules, or the same rules applied
+     * in place on a reusable char buffer
+     */
+    public enum Engine {
+        STRING,
+        CHAR_ARRAY
+    }
+    
+    // Từ được bảo vệ + từ đã biết: ảnh chụp bất biến, thay thế nguyên khối khi cập nhật
+    private volatile StemmerConfig config = StemmerConfig.EMPTY;
+    // Bộ nhớ đệm kết quả stem (null nếu tắt)
+    private final StemCache cache;
+    private final CharArrayStemmer charArrayEngine;
     
     public PorterStemmer() {
-        this.protectedWords = new HashSet<>();
-        this.knownWords = new HashSet<>();
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+    
+    /**
+     * @param cacheCapacity Maximum number of memoized stems (0 disables the cache)
+     */
+    public PorterStemmer(int cacheCapacity) {
+        this(cacheCapacity, Engine.CHAR_ARRAY);
+    }
+    
+    /**
+     * @param cacheCapacity Maximum number of memoized stems (0 disables the cache)
+     * @param engine Stemming engine
+     */
+    public PorterStemmer(int cacheCapacity, Engine engine) {
+        this.cache = cacheCapacity > 0 ? new StemCache(cacheCapacity) : null;
+        this.charArrayEngine = engine == Engine.CHAR_ARRAY ? new CharArrayStemmer() : null;
     }
     
     /**
      * Thiết lập danh sách từ được bảo vệ khỏi stemming
      */
-    public void setProtectedWords(Set<String> words) {
-        this.protectedWords = new HashSet<>(words);
+    public synchronized void setProtectedWords(Set<String> words) {
+        setConfig(new StemmerConfig.Builder(config).protectedWords(words).build());
     }
     
     /**
      * Thêm từ vào danh sách bảo vệ
      */
-    public void addProtectedWords(Set<String> words) {
-        this.protectedWords.addAll(words);
+    public synchronized void addProtectedWords(Set<String> words) {
+        setConfig(new StemmerConfig.Builder(config)
+                .protectedWords(config.getProtectedWords().with(words))
+                .build());
     }
 
     /**
      * Cung cấp danh sách từ đã biết trong corpus để kiểm tra tính hợp lệ sau khi stemming
      */
-    public void setKnownWords(Set<String> words) {
-        this.knownWords = new HashSet<>(words);
+    public synchronized void setKnownWords(Set<String> words) {
+        setConfig(new StemmerConfig.Builder(config).knownWords(words).build());
+    }
+    
+    /**
+     * Swap in a new configuration snapshot
+     * Concurrent stem() calls keep using the snapshot they started with.
+     * @param config Frozen protected/known word tables
+     */
+    public synchronized void setConfig(StemmerConfig config) {
+        this.config = config;
+        invalidateCache();
+    }
+    
+    public StemmerConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * @return Stem cache with hit/miss counters, or null if caching is disabled
+     */
+    public StemCache getCache() {
+        return cache;
+    }
+    
+    private void invalidateCache() {
+        if (cache != null) {
+            cache.clear();
+        }
     }
     
     /**
@@ -57,7 +114,27 @@ public class PorterStemmer {
         if (word == null || word.length() < 3) {
             return word;
         }
+        if (cache == null) {
+            return computeStem(word, config);
+        }
+        
+        String cached = cache.get(word);
+        if (cached != null) {
+            return cached;
+        }
+        // Đọc generation trước snapshot: nếu cấu hình đổi giữa chừng, put() sẽ bị bỏ qua
+        long generation = cache.generation();
+        String stemmed = computeStem(word, config);
+        cache.put(word, stemmed, generation);
+        return stemmed;
+    }
+    
+    private String computeStem(String word, StemmerConfig config) {
+        if (charArrayEngine != null) {
+            return charArrayEngine.stem(word, config.getProtectedWords(), config.getKnownWords());
+        }
         
+        WordTable protectedWords = config.getProtectedWords();
         String lowerWord = word.toLowerCase();
         
         // Bỏ qua từ trong danh sách bảo vệ
@@ -88,7 +165,7 @@ public class PorterStemmer {
         // Step 5: final cleanup
         word = step5(word);
         
-        return ensureMeaningful(lowerWord, word);
+        return ensureMeaningful(lowerWord, word, protectedWords, config.getKnownWords());
     }
     
     /**
@@ -115,6 +192,38 @@ public class PorterStemmer {
         return stemmed;
     }
     
+    /**
+     * Stem multiple documents, interning every stem in a shared pool
+     * Each stem is computed as a fresh String; the pool collapses the copies
+     * so one instance per distinct stem survives.
+     * @param tokenizedDocuments List of tokenized documents
+     * @param pool Token pool shared with the other preprocessing stages
+     * @return List of stemmed documents
+     */
+    public List<List<String>> stemDocuments(List<List<String>> tokenizedDocuments, TokenPool pool) {
+        List<List<String>> stemmed = new ArrayList<>(tokenizedDocuments.size());
+        for (List<String> tokens : tokenizedDocuments) {
+            List<String> stems = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                stems.add(pool.intern(stem(token)));
+            }
+            stemmed.add(stems);
+        }
+        return stemmed;
+    }
+    
+    /**
+     * Stem a document in place, interning every stem in a shared pool
+     * No second token list is allocated; the input list must be modifiable.
+     * @param tokens Tokens of one document, replaced by their stems
+     * @param pool Token pool shared with the other preprocessing stages
+     * @return The same list
+     */
+    public List<String> stemInPlace(List<String> tokens, TokenPool pool) {
+        tokens.replaceAll(token -> pool.intern(stem(token)));
+        return tokens;
+    }
+    
     private String step1a(String word) {
         if (word.endsWith("sses")) {
             return word.substring(0, word.length() - 2);
@@ -280,7 +389,8 @@ public class PorterStemmer {
         return measure;
     }
 
-    private String ensureMeaningful(String original, String candidate) {
+    private String ensureMeaningful(String original, String candidate,
+                                    WordTable protectedWords, WordTable knownWords) {
         if (candidate == null || candidate.isEmpty()) {
             return original;
         }
@@ -0,0 +1,130 @@
+package com.example.sequencer.preprocessing;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StemCache - Bounded, thread-safe memo of word -> stem
+ * Lookups are lock-free; inserts and evictions use the CLOCK (second chance) policy
+ * under a lock. Stems depend on the stemmer's protected/known word sets, so entries
+ * carry no staleness checks: the owner calls clear() whenever those sets change, and
+ * a put computed under an older generation is dropped.
+ */
+public class StemCache {
+    
+    private final int capacity;
+    private final ConcurrentHashMap<String, Entry> entries;
+    // Vòng CLOCK: khóa theo vị trí slot
+    private final String[] ring;
+    private int hand;
+    private int used;
+    private volatile long generation;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public StemCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16) * 4 / 3 + 1);
+        this.ring = new String[capacity];
+    }
+    
+    /**
+     * Look up a cached stem
+     * @param word Input word
+     * @return Cached stem, or null on a miss
+     */
+    public String get(String word) {
+        Entry entry = entries.get(word);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        // Ghi không đồng bộ là chấp nhận được: chỉ là gợi ý cho CLOCK
+        entry.referenced = true;
+        hits.increment();
+        return entry.stem;
+    }
+    
+    /**
+     * Current generation; read it before computing a stem and pass it to put()
+     */
+    public long generation() {
+        return generation;
+    }
+    
+    /**
+     * Insert a stem computed under the given generation
+     * @param word Input word
+     * @param stem Computed stem
+     * @param computedAt Generation observed before computing the stem
+     */
+    public synchronized void put(String word, String stem, long computedAt) {
+        if (computedAt != generation || entries.containsKey(word)) {
+            return;
+        }
+        
+        int slot;
+        if (used < capacity) {
+            slot = used++;
+        } else {
+            // Quét CLOCK: bỏ qua (và xóa cờ) các mục vừa được dùng
+            Entry victim;
+            while ((victim = entries.get(ring[hand])).referenced) {
+                victim.referenced = false;
+                hand = (hand + 1) % capacity;
+            }
+            entries.remove(ring[hand]);
+            slot = hand;
+            hand = (hand + 1) % capacity;
+        }
+        ring[slot] = word;
+        entries.put(word, new Entry(stem));
+    }
+    
+    /**
+     * Drop all entries and start a new generation (counters are kept)
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        Arrays.fill(ring, 0, used, null);
+        used = 0;
+        hand = 0;
+    }
+    
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private static final class Entry {
+        final String stem;
+        boolean referenced;
+        
+        Entry(String stem) {
+            this.stem = stem;
+        }
+    }
+}
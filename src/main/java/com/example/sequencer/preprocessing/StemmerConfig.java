@@ -0,0 +1,75 @@
+package com.example.sequencer.preprocessing;
+
+import java.util.Collection;
+
+/**
+ * StemmerConfig - Frozen protected-word and known-word tables for PorterStemmer
+ * Immutable, so any number of stemming workers can read one snapshot without locks;
+ * changing the configuration means building a new snapshot and swapping it in.
+ */
+public final class StemmerConfig {
+    
+    public static final StemmerConfig EMPTY = new Builder().build();
+    
+    private final WordTable protectedWords;
+    private final WordTable knownWords;
+    
+    private StemmerConfig(Builder builder) {
+        this.protectedWords = builder.protectedWords;
+        this.knownWords = builder.knownWords;
+    }
+    
+    /**
+     * @return Words that must not be stemmed
+     */
+    public WordTable getProtectedWords() {
+        return protectedWords;
+    }
+    
+    /**
+     * @return Words seen in the corpus, used to validate stems
+     */
+    public WordTable getKnownWords() {
+        return knownWords;
+    }
+    
+    /**
+     * Builder for StemmerConfig
+     */
+    public static class Builder {
+        private WordTable protectedWords = WordTable.EMPTY;
+        private WordTable knownWords = WordTable.EMPTY;
+        
+        public Builder() {
+        }
+        
+        public Builder(StemmerConfig base) {
+            this.protectedWords = base.protectedWords;
+            this.knownWords = base.knownWords;
+        }
+        
+        public Builder protectedWords(Collection<String> words) {
+            this.protectedWords = WordTable.of(words);
+            return this;
+        }
+        
+        public Builder protectedWords(WordTable table) {
+            this.protectedWords = table;
+            return this;
+        }
+        
+        public Builder knownWords(Collection<String> words) {
+            this.knownWords = WordTable.of(words);
+            return this;
+        }
+        
+        public Builder knownWords(WordTable table) {
+            this.knownWords = table;
+            return this;
+        }
+        
+        public StemmerConfig build() {
+            return new StemmerConfig(this);
+        }
+    }
+}
@@ -49,6 +49,36 @@ public class StopWordFilter {
         return filtered;
     }
     
+    /**
+     * Filter stop words from multiple documents, keeping only pooled token instances
+     * @param tokenizedDocuments List of tokenized documents
+     * @param pool Token pool shared with the other preprocessing stages
+     * @return Filtered documents
+     */
+    public List<List<String>> filterAll(List<List<String>> tokenizedDocuments, TokenPool pool) {
+        List<List<String>> filtered = new ArrayList<>(tokenizedDocuments.size());
+        for (List<String> tokens : tokenizedDocuments) {
+            filtered.add(filter(tokens, pool));
+        }
+        return filtered;
+    }
+    
+    /**
+     * Filter stop words from one document, keeping only pooled token instances
+     * @param tokens List of tokens
+     * @param pool Token pool shared with the other preprocessing stages
+     * @return Filtered list without stop words
+     */
+    public List<String> filter(List<String> tokens, TokenPool pool) {
+        List<String> kept = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (!stopWords.contains(token.toLowerCase())) {
+                kept.add(pool.intern(token));
+            }
+        }
+        return kept;
+    }
+    
     /**
      * Add custom stop words
      * @param words Words to add to stop word list
@@ -3,32 +3,44 @@ package com.example.sequencer.preprocessing;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TextPreprocessor - Performs comprehensive text cleaning and normalization
  * Based on scientific literature on NLP preprocessing pipelines
  * 
+ * All cleaning steps (HTML tags, URLs, emails, punctuation, proper noun extraction,
+ * lowercasing, whitespace collapsing) run as one fused scan over a reusable char buffer.
+ * The result is identical to applying the steps one after another with these regexes:
+ *   HTML  : <[^>]+>
+ *   URL   : https?://\S+|www\.\S+
+ *   Email : \S+@\S+
+ *   Punct : [^a-zA-Z0-9\s]
+ *   Proper: \b([A-Z][a-z]+)\b
+ *   Space : \s+
+ * 
  * References:
  * - Text Preprocessing in NLP (GeeksforGeeks)
  * - Document-to-Sequence Conversion in Data Mining (Research Report)
  */
 public class TextPreprocessor {
     
-    private final Pattern htmlTagPattern;
-    private final Pattern urlPattern;
-    private final Pattern emailPattern;
-    private final Pattern nonWordPattern;
-    private final Pattern multiSpacePattern;
+    // Bộ đệm lớn hơn ngưỡng này sẽ không được giữ lại giữa các lần gọi
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+    
+    private static final ThreadLocal<char[]> SCRATCH = new ThreadLocal<>();
+    
     private final boolean convertToLowercase;
     private final boolean removeHtmlTags;
     private final boolean removeUrls;
     private final boolean removeEmails;
     private final boolean removeNonWords;
+    private final boolean collectProtectedWords;
     
     // Danh sách từ được bảo vệ (tên riêng, từ chuyên ngành)
+    // Tập đồng thời: nhiều luồng có thể tiền xử lý bằng cùng một preprocessor
     private final Set<String> protectedWords;
     
     private TextPreprocessor(Builder builder) {
@@ -37,26 +49,8 @@ public class TextPreprocessor {
         this.removeUrls = builder.removeUrls;
         this.removeEmails = builder.removeEmails;
         this.removeNonWords = builder.removeNonWords;
-        this.protectedWords = new HashSet<>();
-        
-        // Compile regex patterns for efficiency
-        this.htmlTagPattern = Pattern.compile("<[^>]+>");
-        this.urlPattern = Pattern.compile("https?://\\S+|www\\.\\S+");
-        this.emailPattern = Pattern.compile("\\S+@\\S+");
-        this.nonWordPattern = Pattern.compile("[^a-zA-Z0-9\\s]");
-        this.multiSpacePattern = Pattern.compile("\\s+");
-    }
-    
-    /**
-     * Trích xuất tên riêng từ text gốc
-     * @param text Input text (giữ nguyên hoa/thường)
-     */
-    private void extractProperNouns(String text) {
-        Pattern properNounPattern = Pattern.compile("\\b([A-Z][a-z]+)\\b");
-        Matcher matcher = properNounPattern.matcher(text);
-        while (matcher.find()) {
-            protectedWords.add(matcher.group(1).toLowerCase());
-        }
+        this.collectProtectedWords = builder.collectProtectedWords;
+        this.protectedWords = ConcurrentHashMap.newKeySet();
     }
     
     /**
@@ -72,46 +66,382 @@ public class TextPreprocessor {
      * @return Cleaned and normalized text
      */
     public String preprocess(String text) {
-        if (text == null || text.trim().isEmpty()) {
+        if (text == null || text.isEmpty()) {
             return "";
         }
         
-        String processed = text;
+        char[] buffer = acquireBuffer(text.length());
+        CleanResult cleaned = clean(text, buffer, true);
+        
+        if (cleaned.needsLocaleLowercase) {
+            // Ký tự ngoài ASCII (hoặc locale đặc biệt) cần quy tắc lowercase đầy đủ của String.
+            // Quy tắc đó phụ thuộc ngữ cảnh (ví dụ sigma cuối từ), nên chạy lại không gộp khoảng trắng
+            // rồi mới lowercase, giống thứ tự các bước ban đầu.
+            cleaned = clean(text, buffer, false);
+            String lowered = new String(buffer, 0, cleaned.length).toLowerCase();
+            releaseBuffer(buffer);
+            return collapseWhitespace(lowered);
+        }
+        
+        // trim(): bỏ mọi ký tự <= ' ' ở hai đầu
+        int start = 0;
+        int end = cleaned.length;
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        String processed = new String(buffer, start, end - start);
+        releaseBuffer(buffer);
+        return processed;
+    }
+    
+    /**
+     * Preprocess a single document and push its tokens straight to a sink
+     * Produces exactly the whitespace-separated tokens of preprocess(text), but
+     * without materializing the cleaned string or running a regex split.
+     * @param text Raw input text
+     * @param sink Receiver of token boundaries
+     */
+    public void preprocessTokens(String text, TokenSink sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        
+        char[] buffer = acquireBuffer(text.length());
+        CleanResult cleaned = clean(text, buffer, true);
+        
+        if (cleaned.needsLocaleLowercase) {
+            cleaned = clean(text, buffer, false);
+            String lowered = new String(buffer, 0, cleaned.length).toLowerCase();
+            releaseBuffer(buffer);
+            char[] chars = collapseWhitespace(lowered).toCharArray();
+            emitTokens(chars, 0, chars.length, sink);
+            return;
+        }
+        
+        int start = 0;
+        int end = cleaned.length;
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        try {
+            emitTokens(buffer, start, end, sink);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+    
+    /**
+     * Split trimmed, collapsed text on single spaces
+     */
+    private static void emitTokens(char[] buffer, int start, int end, TokenSink sink) {
+        int tokenStart = start;
+        for (int k = start; k < end; k++) {
+            if (buffer[k] == ' ') {
+                sink.accept(buffer, tokenStart, k - tokenStart);
+                tokenStart = k + 1;
+            }
+        }
+        if (tokenStart < end) {
+            sink.accept(buffer, tokenStart, end - tokenStart);
+        }
+    }
+    
+    /**
+     * Run every enabled cleaning step in a single left-to-right pass
+     * Non-whitespace runs are collected in the buffer, then URL/email/punctuation
+     * rules are applied to the run in place before moving on.
+     * @param collapse Whether to collapse whitespace and lowercase ASCII while scanning
+     * @return Output length and whether a locale-aware lowercase pass is still required
+     */
+    private CleanResult clean(String text, char[] buffer, boolean collapse) {
+        boolean asciiLowercase = collapse && convertToLowercase && isAsciiLowercaseSafe(Locale.getDefault());
+        CleanResult result = new CleanResult();
+        result.collapse = collapse;
+        result.needsLocaleLowercase = convertToLowercase && !asciiLowercase;
+        
+        int n = text.length();
+        int length = 0;
+        int runStart = -1;
+        int closingBracket = -1;
         
-        // Step 1: Remove HTML tags
-        if (removeHtmlTags) {
-            processed = htmlTagPattern.matcher(processed).replaceAll(" ");
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            
+            // Step 1: HTML tag <[^>]+> → ' '
+            if (c == '<' && removeHtmlTags) {
+                if (closingBracket != n && closingBracket <= i) {
+                    closingBracket = text.indexOf('>', i + 1);
+                    if (closingBracket < 0) {
+                        closingBracket = n;
+                    }
+                }
+                if (closingBracket != n && closingBracket > i + 1) {
+                    if (runStart >= 0) {
+                        length = finishRun(buffer, runStart, length, asciiLowercase, result);
+                        runStart = -1;
+                    }
+                    length = appendSpace(buffer, length, collapse);
+                    i = closingBracket;
+                    continue;
+                }
+            }
+            
+            if (isWhitespace(c)) {
+                if (runStart >= 0) {
+                    length = finishRun(buffer, runStart, length, asciiLowercase, result);
+                    runStart = -1;
+                }
+                if (collapse) {
+                    length = appendSpace(buffer, length, true);
+                } else {
+                    buffer[length++] = c;
+                }
+            } else {
+                if (runStart < 0) {
+                    runStart = length;
+                }
+                buffer[length++] = c;
+            }
         }
         
-        // Step 2: Remove URLs
+        if (runStart >= 0) {
+            length = finishRun(buffer, runStart, length, asciiLowercase, result);
+        }
+        result.length = length;
+        return result;
+    }
+    
+    /**
+     * Apply steps 2-5 to one non-whitespace run stored at buffer[runStart, runEnd)
+     * @return New output length
+     */
+    private int finishRun(char[] buffer, int runStart, int runEnd, boolean asciiLowercase, CleanResult result) {
+        // Step 2: URL - từ vị trí khớp đầu tiên đến hết run bị thay bằng ' '
+        int keepEnd = runEnd;
+        boolean replaced = false;
         if (removeUrls) {
-            processed = urlPattern.matcher(processed).replaceAll(" ");
+            int urlStart = findUrl(buffer, runStart, runEnd);
+            if (urlStart >= 0) {
+                keepEnd = urlStart;
+                replaced = true;
+            }
         }
         
-        // Step 3: Remove email addresses
-        if (removeEmails) {
-            processed = emailPattern.matcher(processed).replaceAll(" ");
+        // Step 3: Email - cả run (sau khi cắt URL) bị thay nếu có '@' ở giữa
+        if (removeEmails && containsInnerAt(buffer, runStart, keepEnd)) {
+            keepEnd = runStart;
+            replaced = true;
         }
         
-        // Step 4: Remove non-word characters (punctuation) - TRƯỚC khi lowercase
-        if (removeNonWords) {
-            processed = nonWordPattern.matcher(processed).replaceAll(" ");
+        // Step 4: Punctuation → ' ' (gộp khoảng trắng ngay khi ghi)
+        int write = runStart;
+        for (int read = runStart; read < keepEnd; read++) {
+            char c = buffer[read];
+            if (removeNonWords && !isAsciiLetterOrDigit(c)) {
+                write = appendSpace(buffer, write, result.collapse);
+            } else {
+                buffer[write++] = c;
+            }
         }
         
-        // Step 4.5: Trích xuất tên riêng và từ dài TRƯỚC KHI lowercase
-        if (convertToLowercase) {
-            extractProperNouns(processed);
+        // Step 4.5: Trích xuất tên riêng TRƯỚC KHI lowercase
+        if (convertToLowercase && collectProtectedWords) {
+            extractProperNouns(buffer, runStart, write);
         }
         
         // Step 5: Convert to lowercase
-        if (convertToLowercase) {
-            processed = processed.toLowerCase();
+        if (asciiLowercase) {
+            for (int k = runStart; k < write; k++) {
+                char c = buffer[k];
+                if (c >= 'A' && c <= 'Z') {
+                    buffer[k] = (char) (c + ('a' - 'A'));
+                } else if (c >= 0x80) {
+                    result.needsLocaleLowercase = true;
+                }
+            }
         }
         
-        // Step 6: Normalize whitespace
-        processed = multiSpacePattern.matcher(processed).replaceAll(" ");
-        
-        return processed.trim();
+        return replaced ? appendSpace(buffer, write, result.collapse) : write;
+    }
+    
+    /**
+     * Trích xuất tên riêng ([A-Z][a-z]+ giữa hai ranh giới từ) trong buffer[from, to)
+     * The run is surrounded by whitespace, so positions outside it count as non-word.
+     */
+    private void extractProperNouns(char[] buffer, int from, int to) {
+        for (int k = from; k < to; k++) {
+            char c = buffer[k];
+            if (c < 'A' || c > 'Z' || isWordBefore(buffer, from, to, k)) {
+                continue;
+            }
+            int end = k + 1;
+            while (end < to && buffer[end] >= 'a' && buffer[end] <= 'z') {
+                end++;
+            }
+            if (end > k + 1 && (end == to || !isWordAt(buffer, from, to, end))) {
+                protectedWords.add(new String(buffer, k, end - k).toLowerCase());
+            }
+            k = end - 1;
+        }
+    }
+    
+    /**
+     * Find the first position of https?://\S+ or www\.\S+ inside a run
+     * @return Start index of the URL, or -1
+     */
+    private static int findUrl(char[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            if (c == 'h' && startsWith(buffer, i, to, "http")) {
+                int scheme = i + 4;
+                if (scheme < to && buffer[scheme] == 's' && startsWith(buffer, scheme + 1, to, "://")
+                        && scheme + 4 < to) {
+                    return i;
+                }
+                if (startsWith(buffer, scheme, to, "://") && scheme + 3 < to) {
+                    return i;
+                }
+            } else if (c == 'w' && startsWith(buffer, i, to, "www.") && i + 4 < to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean startsWith(char[] buffer, int offset, int limit, String prefix) {
+        if (offset + prefix.length() > limit) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (buffer[offset + k] != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * \S+@\S+ matches a whole run iff it has an '@' that is neither first nor last
+     */
+    private static boolean containsInnerAt(char[] buffer, int from, int to) {
+        for (int k = from + 1; k < to - 1; k++) {
+            if (buffer[k] == '@') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Write a space, collapsing runs when requested; leading whitespace is dropped
+     * in that mode since it would be trimmed anyway
+     */
+    private static int appendSpace(char[] buffer, int length, boolean collapse) {
+        if (!collapse || (length > 0 && buffer[length - 1] != ' ')) {
+            buffer[length++] = ' ';
+        }
+        return length;
+    }
+    
+    /**
+     * Equivalent of replaceAll("\\s+", " ").trim()
+     */
+    private static String collapseWhitespace(String text) {
+        StringBuilder collapsed = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isWhitespace(c)) {
+                collapsed.append(c);
+            } else if (collapsed.length() == 0 || !isWhitespace(text.charAt(i - 1))) {
+                collapsed.append(' ');
+            }
+        }
+        return collapsed.toString().trim();
+    }
+    
+    /**
+     * Same character class as regex \s (without UNICODE_CHARACTER_CLASS)
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+    
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+    
+    /**
+     * Word-boundary helpers mirroring java.util.regex \b (letters, digits, '_' and
+     * non-spacing marks attached to a base character)
+     */
+    private static boolean isWordBefore(char[] buffer, int from, int to, int index) {
+        if (index <= from) {
+            return false;
+        }
+        int ch = Character.codePointBefore(buffer, index, from);
+        return isWordChar(ch)
+                || (Character.getType(ch) == Character.NON_SPACING_MARK
+                    && hasBaseCharacter(buffer, from, to, index - 1));
+    }
+    
+    private static boolean isWordAt(char[] buffer, int from, int to, int index) {
+        int ch = Character.codePointAt(buffer, index, to);
+        return isWordChar(ch)
+                || (Character.getType(ch) == Character.NON_SPACING_MARK
+                    && hasBaseCharacter(buffer, from, to, index));
+    }
+    
+    private static boolean hasBaseCharacter(char[] buffer, int from, int to, int index) {
+        for (int x = index; x >= from; x--) {
+            int ch = Character.codePointAt(buffer, x, to);
+            if (Character.isLetterOrDigit(ch)) {
+                return true;
+            }
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isWordChar(int ch) {
+        return ch == '_' || Character.isLetterOrDigit(ch);
+    }
+    
+    /**
+     * String.toLowerCase() maps ASCII letters one-to-one except in these locales
+     */
+    private static boolean isAsciiLowercaseSafe(Locale locale) {
+        String language = locale.getLanguage();
+        return !("tr".equals(language) || "az".equals(language) || "lt".equals(language));
+    }
+    
+    private static char[] acquireBuffer(int capacity) {
+        char[] buffer = SCRATCH.get();
+        if (buffer == null || buffer.length < capacity) {
+            buffer = new char[Math.max(capacity, 256)];
+        } else {
+            SCRATCH.remove();
+        }
+        return buffer;
+    }
+    
+    private static void releaseBuffer(char[] buffer) {
+        if (buffer.length <= MAX_RETAINED_BUFFER) {
+            SCRATCH.set(buffer);
+        }
+    }
+    
+    private static final class CleanResult {
+        int length;
+        boolean collapse;
+        boolean needsLocaleLowercase;
     }
     
     /**
@@ -138,6 +468,7 @@ public class TextPreprocessor {
         private boolean removeUrls = true;
         private boolean removeEmails = true;
         private boolean removeNonWords = true;
+        private boolean collectProtectedWords = true;
         
         public Builder convertToLowercase(boolean value) {
             this.convertToLowercase = value;
@@ -164,6 +495,15 @@ public class TextPreprocessor {
             return this;
         }
         
+        /**
+         * Collect proper nouns into the protected words (default true)
+         * Turn off for long-lived transform-only use, where the set would only grow.
+         */
+        public Builder collectProtectedWords(boolean value) {
+            this.collectProtectedWords = value;
+            return this;
+        }
+        
         public TextPreprocessor build() {
             return new TextPreprocessor(this);
         }
@@ -0,0 +1,190 @@
+package com.example.sequencer.preprocessing;
+
+/**
+ * TokenPool - Corpus-scoped interning table for tokens
+ * Token streams are Zipfian: millions of occurrences map to a few thousand distinct
+ * words. Lookups are keyed by char ranges, so a token that is already pooled is found
+ * before any String is allocated, and every stage shares one instance per word.
+ * 
+ * Not thread-safe; use one pool per corpus run.
+ */
+public class TokenPool {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    // Bảng băm địa chỉ mở (linear probing), hash giống String.hashCode
+    private String[] slots;
+    private int size;
+    
+    public TokenPool() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public TokenPool(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.slots = new String[capacity];
+    }
+    
+    /**
+     * Get the pooled token for a char range, creating it on first sight
+     * @param buffer Character buffer
+     * @param offset Start of the token
+     * @param length Token length
+     * @return Canonical String instance
+     */
+    public String intern(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        String existing;
+        while ((existing = slots[slot]) != null) {
+            if (existing.hashCode() == hash && matches(existing, buffer, offset, length)) {
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        String token = new String(buffer, offset, length);
+        insertAt(slot, token);
+        return token;
+    }
+    
+    /**
+     * Get the pooled instance equal to a token
+     * @param token Token (may be null)
+     * @return Canonical String instance
+     */
+    public String intern(String token) {
+        if (token == null) {
+            return null;
+        }
+        int hash = token.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        String existing;
+        while ((existing = slots[slot]) != null) {
+            if (existing.hashCode() == hash && existing.equals(token)) {
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        insertAt(slot, token);
+        return token;
+    }
+    
+    /**
+     * Find a pooled token by char range without adding it
+     * @param buffer Character buffer
+     * @param offset Start of the token
+     * @param length Token length
+     * @return Pooled String instance, or null if absent
+     */
+    public String find(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        String existing;
+        while ((existing = slots[slot]) != null) {
+            if (existing.hashCode() == hash && matches(existing, buffer, offset, length)) {
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    /**
+     * Check whether a token is pooled
+     * @param token Token to look up
+     * @return true if an equal token is in the pool
+     */
+    public boolean contains(String token) {
+        int hash = token.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        String existing;
+        while ((existing = slots[slot]) != null) {
+            if (existing.hashCode() == hash && existing.equals(token)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    /**
+     * Intern every token of another pool into this one
+     * Used to combine the pools of documents tokenized in parallel, one pool per chunk.
+     * @param other Pool to merge (not modified)
+     */
+    public void addAll(TokenPool other) {
+        for (String token : other.slots) {
+            if (token != null) {
+                intern(token);
+            }
+        }
+    }
+    
+    /**
+     * Freeze the current contents into an immutable table (the pool stays usable)
+     * @return WordTable with the same tokens
+     */
+    public WordTable toWordTable() {
+        return new WordTable(slots.clone(), size);
+    }
+    
+    /**
+     * @return Number of distinct tokens in the pool
+     */
+    public int size() {
+        return size;
+    }
+    
+    private void insertAt(int slot, String token) {
+        slots[slot] = token;
+        if (++size * 2 > slots.length) {
+            resize();
+        }
+    }
+    
+    private void resize() {
+        String[] old = slots;
+        slots = new String[old.length << 1];
+        int mask = slots.length - 1;
+        for (String token : old) {
+            if (token != null) {
+                int slot = mix(token.hashCode()) & mask;
+                while (slots[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = token;
+            }
+        }
+    }
+    
+    static boolean matches(String token, char[] buffer, int offset, int length) {
+        if (token.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (token.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    static int mix(int hash) {
+        // Trộn bit cao xuống để tránh cụm khi dùng mask
+        return hash ^ (hash >>> 16);
+    }
+}
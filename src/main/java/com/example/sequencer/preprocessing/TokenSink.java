@@ -0,0 +1,18 @@
+package com.example.sequencer.preprocessing;
+
+/**
+ * TokenSink - Receives token boundaries from a fused preprocessing scan
+ * The buffer is only valid for the duration of the call, so implementations must
+ * copy (or look up) the characters before returning.
+ */
+@FunctionalInterface
+public interface TokenSink {
+    
+    /**
+     * Accept one token
+     * @param buffer Character buffer holding the token
+     * @param offset Start of the token in the buffer
+     * @param length Token length in chars
+     */
+    void accept(char[] buffer, int offset, int length);
+}
@@ -1,9 +1,7 @@
 package com.example.sequencer.preprocessing;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -16,7 +14,6 @@ import java.util.stream.Collectors;
  */
 public class Tokenizer {
     
-    private final Pattern tokenPattern;
     private final int minTokenLength;
     
     public Tokenizer() {
@@ -25,8 +22,6 @@ public class Tokenizer {
     
     public Tokenizer(int minTokenLength) {
         this.minTokenLength = minTokenLength;
-        // Pattern to split on whitespace
-        this.tokenPattern = Pattern.compile("\\s+");
     }
     
     /**
@@ -35,13 +30,90 @@ public class Tokenizer {
      * @return List of tokens
      */
     public List<String> tokenize(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
         }
         
-        return Arrays.stream(tokenPattern.split(text.trim()))
-                .filter(token -> token.length() >= minTokenLength)
-                .collect(Collectors.toList());
+        // Split the trimmed text on runs of whitespace (same as \\s+)
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int tokenStart = -1;
+        for (int i = start; i <= end; i++) {
+            boolean boundary = i == end || isWhitespace(text.charAt(i));
+            if (!boundary && tokenStart < 0) {
+                tokenStart = i;
+            } else if (boundary && tokenStart >= 0) {
+                if (i - tokenStart >= minTokenLength) {
+                    tokens.add(text.substring(tokenStart, i));
+                }
+                tokenStart = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Preprocess and tokenize a raw document in one fused scan
+     * Tokens shorter than minTokenLength are dropped before any String is created.
+     * @param rawText Raw document text
+     * @param preprocessor Preprocessor providing the cleaning rules
+     * @return List of tokens
+     */
+    public List<String> tokenize(String rawText, TextPreprocessor preprocessor) {
+        return tokenize(rawText, preprocessor, null);
+    }
+    
+    /**
+     * Preprocess and tokenize a raw document, interning tokens in a shared pool
+     * Tokens already in the pool are found by char range without allocating.
+     * @param rawText Raw document text
+     * @param preprocessor Preprocessor providing the cleaning rules
+     * @param pool Token pool (null to allocate every token)
+     * @return List of tokens
+     */
+    public List<String> tokenize(String rawText, TextPreprocessor preprocessor, TokenPool pool) {
+        List<String> tokens = new ArrayList<>();
+        preprocessor.preprocessTokens(rawText, (buffer, offset, length) -> {
+            if (length >= minTokenLength) {
+                tokens.add(pool != null
+                        ? pool.intern(buffer, offset, length)
+                        : new String(buffer, offset, length));
+            }
+        });
+        return tokens;
+    }
+    
+    /**
+     * Preprocess and tokenize multiple raw documents
+     * @param rawDocuments List of raw documents
+     * @param preprocessor Preprocessor providing the cleaning rules
+     * @return List of tokenized documents
+     */
+    public List<List<String>> tokenizeAll(List<String> rawDocuments, TextPreprocessor preprocessor) {
+        return tokenizeAll(rawDocuments, preprocessor, null);
+    }
+    
+    /**
+     * Preprocess and tokenize multiple raw documents into a shared token pool
+     * @param rawDocuments List of raw documents
+     * @param preprocessor Preprocessor providing the cleaning rules
+     * @param pool Token pool (null to allocate every token)
+     * @return List of tokenized documents
+     */
+    public List<List<String>> tokenizeAll(List<String> rawDocuments, TextPreprocessor preprocessor,
+                                          TokenPool pool) {
+        List<List<String>> tokenizedDocs = new ArrayList<>(rawDocuments.size());
+        for (String doc : rawDocuments) {
+            tokenizedDocs.add(tokenize(doc, preprocessor, pool));
+        }
+        return tokenizedDocs;
     }
     
     /**
@@ -69,4 +141,8 @@ public class Tokenizer {
                 .distinct()
                 .collect(Collectors.toList());
     }
+    
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
 }
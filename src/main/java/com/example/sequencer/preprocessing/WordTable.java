@@ -0,0 +1,117 @@
+package com.example.sequencer.preprocessing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * WordTable - Immutable hashed string table for membership tests
+ * A single open-addressing String[] (same layout as TokenPool, so a pool can be
+ * frozen by copying its slots) instead of a HashSet's per-entry nodes. Lookups by
+ * String or by char range; safe to share across threads once built.
+ */
+public final class WordTable {
+    
+    public static final WordTable EMPTY = of(java.util.Collections.<String>emptyList());
+    
+    private final String[] slots;
+    private final int size;
+    
+    WordTable(String[] slots, int size) {
+        this.slots = slots;
+        this.size = size;
+    }
+    
+    /**
+     * Build a table from a collection of words (duplicates are ignored)
+     * @param words Words to include
+     * @return Frozen table
+     */
+    public static WordTable of(Collection<String> words) {
+        TokenPool pool = new TokenPool(words.size());
+        for (String word : words) {
+            pool.intern(word);
+        }
+        return pool.toWordTable();
+    }
+    
+    /**
+     * Check whether a word is in the table
+     * @param word Word to look up
+     * @return true if present
+     */
+    public boolean contains(String word) {
+        int hash = word.hashCode();
+        int mask = slots.length - 1;
+        int slot = TokenPool.mix(hash) & mask;
+        String existing;
+        while ((existing = slots[slot]) != null) {
+            if (existing.hashCode() == hash && existing.equals(word)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    /**
+     * Find a word by char range
+     * @param buffer Character buffer
+     * @param offset Start of the word
+     * @param length Word length
+     * @return The table's String instance, or null if absent
+     */
+    public String find(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        
+        int mask = slots.length - 1;
+        int slot = TokenPool.mix(hash) & mask;
+        String existing;
+        while ((existing = slots[slot]) != null) {
+            if (existing.hashCode() == hash && TokenPool.matches(existing, buffer, offset, length)) {
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    /**
+     * Table containing the words of this table and another collection
+     * @param words Words to add
+     * @return New table
+     */
+    public WordTable with(Collection<String> words) {
+        TokenPool pool = new TokenPool(size + words.size());
+        for (String word : slots) {
+            if (word != null) {
+                pool.intern(word);
+            }
+        }
+        for (String word : words) {
+            pool.intern(word);
+        }
+        return pool.toWordTable();
+    }
+    
+    /**
+     * Words of the table, in slot order
+     * @return New list of the words
+     */
+    public List<String> toList() {
+        List<String> words = new ArrayList<>(size);
+        for (String word : slots) {
+            if (word != null) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+    
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.sequencer.service;
+
+import java.util.Arrays;
+
+/**
+ * LatencyRecorder - Request latencies of one endpoint, with p50 / p99
+ * Keeps the most recent samples in a fixed ring, so memory stays constant for a
+ * long-lived service and the percentiles follow the current load.
+ */
+public final class LatencyRecorder {
+
+    public static final int DEFAULT_WINDOW = 8192;
+
+    private final long[] samples;
+    private long count;
+
+    public LatencyRecorder() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public LatencyRecorder(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1: " + window);
+        }
+        this.samples = new long[window];
+    }
+
+    /**
+     * Record one request
+     * @param nanos Latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (count % samples.length)] = nanos;
+        count++;
+    }
+
+    /**
+     * Total number of requests recorded (not limited to the window)
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Percentile of the latencies in the window (nearest rank)
+     * @param percentile Percentile in (0, 100]
+     * @return Latency in milliseconds, or 0 if nothing was recorded
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1_000_000.0;
+    }
+}
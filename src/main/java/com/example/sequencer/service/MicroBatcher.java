@@ -0,0 +1,174 @@
+package com.example.sequencer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * MicroBatcher - Coalesces concurrent single-item requests into small batches
+ * A batch starts with the first waiting item and closes when it holds maxBatchSize
+ * items or maxDelay has passed since that item arrived, whichever comes first. So an
+ * isolated request waits at most maxDelay, while a burst is processed in one call.
+ *
+ * @param <I> Request item
+ * @param <O> Result of one item
+ */
+public final class MicroBatcher<I, O> implements AutoCloseable {
+
+    private final Function<List<I>, List<O>> batchFunction;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final Thread[] workers;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param name Thread name prefix
+     * @param batchFunction Processes a batch; must return one result per item, in order
+     * @param maxBatchSize Maximum items per batch
+     * @param maxDelayMicros Maximum wait for more items after the first one of a batch
+     * @param workerCount Number of batches processed concurrently
+     */
+    public MicroBatcher(String name, Function<List<I>, List<O>> batchFunction,
+                        int maxBatchSize, long maxDelayMicros, int workerCount) {
+        if (maxBatchSize < 1 || maxDelayMicros < 0 || workerCount < 1) {
+            throw new IllegalArgumentException("Invalid batching settings: size=" + maxBatchSize
+                    + ", delay=" + maxDelayMicros + "us, workers=" + workerCount);
+        }
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.workers = new Thread[workerCount];
+        for (int w = 0; w < workerCount; w++) {
+            workers[w] = new Thread(this::runWorker, name + "-batch-" + w);
+            workers[w].setDaemon(true);
+            workers[w].start();
+        }
+    }
+
+    /**
+     * Queue one item
+     * @param item Request item
+     * @return Future completed with the item's result (or the batch's failure)
+     */
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+            return result;
+        }
+        Pending<I, O> pending = new Pending<>(item, result);
+        queue.add(pending);
+        // close() có thể đã dọn hàng đợi ngay trước khi phần tử này được thêm vào
+        if (closed && queue.remove(pending)) {
+            result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+        }
+        return result;
+    }
+
+    private void runWorker() {
+        List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                Pending<I, O> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Gom thêm cho đến khi đủ kích thước hoặc hết thời gian chờ tính từ phần tử đầu
+                long deadline = first.arrivalNanos + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<I, O> next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Bị close() ngắt khi đang gom: các phần tử đã lấy khỏi hàng đợi cũng phải kết thúc
+            failClosed(batch);
+        }
+    }
+
+    private void process(List<Pending<I, O>> batch) {
+        List<I> inputs = new ArrayList<>(batch.size());
+        for (Pending<I, O> pending : batch) {
+            inputs.add(pending.item);
+        }
+        try {
+            List<O> outputs = batchFunction.apply(inputs);
+            if (outputs.size() != batch.size()) {
+                throw new IllegalStateException("Batch function returned " + outputs.size()
+                        + " results for " + batch.size() + " items");
+            }
+            batches.incrementAndGet();
+            items.addAndGet(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(outputs.get(i));
+            }
+        } catch (RuntimeException | Error e) {
+            for (Pending<I, O> pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Number of batches processed so far
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Number of items processed so far
+     */
+    public long getItemCount() {
+        return items.get();
+    }
+
+    /**
+     * Stop the workers; items still queued or in a batch being filled fail with IllegalStateException
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        List<Pending<I, O>> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        failClosed(queued);
+    }
+
+    private static <I, O> void failClosed(List<Pending<I, O>> pending) {
+        for (Pending<I, O> item : pending) {
+            item.result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+        }
+    }
+
+    private static final class Pending<I, O> {
+        final I item;
+        final CompletableFuture<O> result;
+        final long arrivalNanos = System.nanoTime();
+
+        Pending(I item, CompletableFuture<O> result) {
+            this.item = item;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.sequencer.service;
+
+import com.example.sequencer.io.DocumentReader;
+import com.example.sequencer.io.ParallelDocumentLoader;
+import com.example.sequencer.model.SparseMatrix;
+import com.example.sequencer.pipeline.FittedPipelineModel;
+import com.example.sequencer.pipeline.SequencingPipeline;
+import com.example.sequencer.pipeline.SequencingPipeline.Output;
+import com.example.sequencer.pipeline.SequencingPipeline.PipelineConfiguration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * VectorizationServer - Local HTTP service over a fitted pipeline model
+ * Endpoints (POST the raw document text as the request body):
+ *   /encode  → {"ids":[...]}                                  integer sequence
+ *   /bow     → {"features":n,"indices":[...],"values":[...]}  BoW row
+ *   /tfidf   → {"features":n,"indices":[...],"values":[...]}  TF-IDF row
+ *   /stats   (GET) → per-endpoint request count, p50 / p99 latency and batching
+ *
+ * Concurrent requests to an endpoint are coalesced by a {@link MicroBatcher} and run
+ * through {@link FittedPipelineModel#transformBatch(List, Set)} together. Handler threads
+ * only read request bodies; the response is written when the batch completes, so the
+ * number of requests in flight is not limited by the handler pool. Built on the JDK's
+ * com.sun.net.httpserver; binds to the loopback interface only.
+ */
+public final class VectorizationServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final long DEFAULT_MAX_BATCH_DELAY_MICROS = 2000;
+    public static final int DEFAULT_HANDLER_THREADS = 32;
+
+    /** Transform endpoints, in the order reported by /stats */
+    public static final List<String> ENDPOINTS = Collections.unmodifiableList(
+            Arrays.asList("encode", "bow", "tfidf"));
+
+    private static final String DEFAULT_MODEL_PATH = "Data/Output/model.bin";
+    private static final String INPUT_DIR = "Data/Input";
+
+    private final FittedPipelineModel model;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final Map<String, MicroBatcher<String, String>> batchers = new LinkedHashMap<>();
+    private final Map<String, LatencyRecorder> latencies = new LinkedHashMap<>();
+
+    private VectorizationServer(Builder builder) throws IOException {
+        this.model = builder.model;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 0);
+        this.handlers = Executors.newFixedThreadPool(builder.handlerThreads);
+        server.setExecutor(handlers);
+
+        addEndpoint("encode", Output.SEQUENCES, transformation -> {
+            List<String> bodies = new ArrayList<>(transformation.getDocumentCount());
+            for (int i = 0; i < transformation.getDocumentCount(); i++) {
+                StringBuilder json = new StringBuilder("{\"ids\":");
+                appendArray(json, transformation.getIntegerSequence(i));
+                bodies.add(json.append('}').toString());
+            }
+            return bodies;
+        }, builder);
+        addEndpoint("bow", Output.BAG_OF_WORDS, transformation -> rows(transformation.getBowMatrix()), builder);
+        addEndpoint("tfidf", Output.TF_IDF, transformation -> rows(transformation.getTfidfMatrix()), builder);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    private void addEndpoint(String name, Output output,
+                             Function<FittedPipelineModel.Transformation, List<String>> toJson, Builder builder) {
+        Set<Output> outputs = EnumSet.of(output);
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(name,
+                texts -> toJson.apply(model.transformBatch(texts, outputs)),
+                builder.maxBatchSize, builder.maxBatchDelayMicros, builder.batchWorkers);
+        batchers.put(name, batcher);
+        latencies.put(name, new LatencyRecorder());
+        server.createContext("/" + name, exchange -> handleTransform(exchange, name));
+    }
+
+    /**
+     * Start serving requests
+     */
+    public VectorizationServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Port the server is bound to (useful when built with port 0)
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Latencies of a transform endpoint
+     * @param endpoint One of {@link #ENDPOINTS}
+     */
+    public LatencyRecorder getLatency(String endpoint) {
+        LatencyRecorder recorder = latencies.get(endpoint);
+        if (recorder == null) {
+            throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        }
+        return recorder;
+    }
+
+    /**
+     * Stop the server and its batch workers
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        for (MicroBatcher<String, String> batcher : batchers.values()) {
+            batcher.close();
+        }
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Read the request and hand it to the endpoint's batcher without waiting for the result
+     * Latency is recorded from request arrival until the response is ready to send.
+     */
+    private void handleTransform(HttpExchange exchange, String endpoint) throws IOException {
+        long start = System.nanoTime();
+        String text;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("POST the document text to /" + endpoint));
+                exchange.close();
+                return;
+            }
+            text = readBody(exchange.getRequestBody());
+        } catch (IOException | RuntimeException e) {
+            exchange.close();
+            throw e;
+        }
+        // Phản hồi được ghi trên luồng hoàn tất batch; luồng handler được trả lại ngay
+        batchers.get(endpoint).submit(text).whenComplete((json, failure) -> {
+            latencies.get(endpoint).record(System.nanoTime() - start);
+            try {
+                if (failure == null) {
+                    respond(exchange, 200, json);
+                } else {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    respond(exchange, 500, error(String.valueOf(cause.getMessage())));
+                }
+            } catch (IOException e) {
+                // Client đã ngắt kết nối: không còn ai nhận phản hồi
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            StringBuilder json = new StringBuilder("{");
+            for (String endpoint : ENDPOINTS) {
+                LatencyRecorder recorder = latencies.get(endpoint);
+                MicroBatcher<String, String> batcher = batchers.get(endpoint);
+                long batches = batcher.getBatchCount();
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append('"').append(endpoint).append("\":{")
+                        .append("\"requests\":").append(recorder.getCount())
+                        .append(",\"p50_ms\":").append(format(recorder.getPercentileMillis(50)))
+                        .append(",\"p99_ms\":").append(format(recorder.getPercentileMillis(99)))
+                        .append(",\"batches\":").append(batches)
+                        .append(",\"mean_batch_size\":")
+                        .append(format(batches == 0 ? 0.0 : (double) batcher.getItemCount() / batches))
+                        .append('}');
+            }
+            respond(exchange, 200, json.append('}').toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * One JSON body per row of a transformed matrix
+     */
+    private static List<String> rows(SparseMatrix matrix) {
+        int[] indices = matrix.getIndices();
+        double[] data = matrix.getData();
+        List<String> bodies = new ArrayList<>(matrix.getRowCount());
+        for (int row = 0; row < matrix.getRowCount(); row++) {
+            StringBuilder json = new StringBuilder("{\"features\":").append(matrix.getColumnCount())
+                    .append(",\"indices\":[");
+            for (int j = matrix.getRowStart(row); j < matrix.getRowEnd(row); j++) {
+                json.append(j > matrix.getRowStart(row) ? "," : "").append(indices[j]);
+            }
+            json.append("],\"values\":[");
+            for (int j = matrix.getRowStart(row); j < matrix.getRowEnd(row); j++) {
+                json.append(j > matrix.getRowStart(row) ? "," : "").append(data[j]);
+            }
+            bodies.add(json.append("]}").toString());
+        }
+        return bodies;
+    }
+
+    private static void appendArray(StringBuilder json, int[] values) {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            json.append(i > 0 ? "," : "").append(values[i]);
+        }
+        json.append(']');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        for (char c : message.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString();
+    }
+
+    private static String readBody(InputStream body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Run the service: VectorizationServer [model-file] [port]
+     * Without a saved model, one is fitted on Data/Input and saved first.
+     */
+    public static void main(String[] args) {
+        Path modelPath = Paths.get(args.length > 0 ? args[0] : DEFAULT_MODEL_PATH);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+
+        try {
+            if (!Files.exists(modelPath)) {
+                fitModel(modelPath);
+            }
+            FittedPipelineModel model = FittedPipelineModel.load(modelPath);
+            VectorizationServer service = new Builder(model).port(port).build().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+
+            System.out.println("Model: " + modelPath + " (" + model.getVocabulary().getSize() + " tokens, "
+                    + model.getFeatureCount() + " features)");
+            System.out.println("Listening on http://127.0.0.1:" + service.getPort());
+            for (String endpoint : ENDPOINTS) {
+                System.out.println("  POST /" + endpoint);
+            }
+            System.out.println("  GET  /stats");
+        } catch (Exception e) {
+            System.err.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void fitModel(Path modelPath) throws IOException {
+        List<File> txtFiles = ParallelDocumentLoader.listTextFiles(INPUT_DIR);
+        if (txtFiles.isEmpty()) {
+            throw new IOException("No model at " + modelPath + " and no .txt files in " + INPUT_DIR + " to fit one");
+        }
+        List<String> documents = new ArrayList<>();
+        for (List<String> docs : new ParallelDocumentLoader(DocumentReader.DocumentFormat.SINGLE_DOCUMENT)
+                .readAll(txtFiles)) {
+            documents.addAll(docs);
+        }
+
+        // Cùng cấu hình với AutoRunner; chỉ cần thống kê và vocabulary nên chỉ tạo sequences
+        PipelineConfiguration config = new PipelineConfiguration()
+                .setLowercase(true)
+                .setRemoveStopWords(true)
+                .setApplyStemming(false)
+                .setMinFrequency(1)
+                .setMinTokenLength(1)
+                .setParallelism(Runtime.getRuntime().availableProcessors())
+                .setOutputs(Output.SEQUENCES);
+        Files.createDirectories(modelPath.toAbsolutePath().getParent());
+        new SequencingPipeline(config).fit(documents).save(modelPath);
+        System.out.println("Fitted model saved to: " + modelPath);
+    }
+
+    /**
+     * Builder for VectorizationServer
+     */
+    public static class Builder {
+        private final FittedPipelineModel model;
+        private int port = DEFAULT_PORT;
+        private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+        private long maxBatchDelayMicros = DEFAULT_MAX_BATCH_DELAY_MICROS;
+        private int batchWorkers = Runtime.getRuntime().availableProcessors();
+        private int handlerThreads = DEFAULT_HANDLER_THREADS;
+
+        public Builder(FittedPipelineModel model) {
+            this.model = model;
+        }
+
+        /**
+         * Loopback port to bind (0 picks a free port)
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Maximum documents transformed together (default 64)
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Maximum time a request waits for others to join its batch (default 2 ms)
+         */
+        public Builder maxBatchDelayMicros(long maxBatchDelayMicros) {
+            this.maxBatchDelayMicros = maxBatchDelayMicros;
+            return this;
+        }
+
+        /**
+         * Batches transformed concurrently per endpoint (default: available processors)
+         */
+        public Builder batchWorkers(int batchWorkers) {
+            this.batchWorkers = batchWorkers;
+            return this;
+        }
+
+        /**
+         * Threads accepting requests and reading their bodies (default 32); they do not wait
+         * for the batch, so this does not bound the batch size
+         */
+        public Builder handlerThreads(int handlerThreads) {
+            this.handlerThreads = handlerThreads;
+            return this;
+        }
+
+        public VectorizationServer build() throws IOException {
+            return new VectorizationServer(this);
+        }
+    }
+}
@@ -4,9 +4,34 @@ import com.example.sequencer.preprocessing.*;
 import com.example.sequencer.encoding.*;
 import com.example.sequencer.vectorization.*;
 import com.example.sequencer.pipeline.*;
+import com.example.sequencer.io.DocumentReader;
+import com.example.sequencer.io.SequenceWriter;
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
+import com.example.sequencer.model.SequenceVector;
+import com.example.sequencer.model.SparseMatrix;
+import com.example.sequencer.service.MicroBatcher;
+import com.example.sequencer.service.VectorizationServer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ManualTest - Simple test to verify all components work
@@ -45,6 +70,11 @@ public class ManualTest {
             for (int i = 0; i < tokenized.size(); i++) {
                 System.out.println("  Doc " + (i+1) + ": " + tokenized.get(i));
             }
+            List<List<String>> fused = tokenizer.tokenizeAll(documents, preprocessor);
+            if (!fused.equals(tokenized)) {
+                throw new IllegalStateException("Fused tokenization differs: " + fused);
+            }
+            System.out.println("  Fused preprocess+tokenize matches");
             
             // Test 3: Stop Word Filtering
             System.out.println("\n[Test 3] Stop Word Filtering");
@@ -67,12 +97,26 @@ public class ManualTest {
             Vocabulary vocab = new Vocabulary();
             vocab.buildFromDocuments(stemmed);
             System.out.println("  Vocabulary size: " + vocab.getSize());
+            Vocabulary statsVocab = new Vocabulary();
+            statsVocab.buildFromStatistics(CorpusStatistics.of(ColumnarCorpus.fromDocuments(stemmed)));
+            if (!new ArrayList<>(statsVocab.getAllTokens()).equals(new ArrayList<>(vocab.getAllTokens()))) {
+                throw new IllegalStateException("Vocabulary from corpus statistics differs");
+            }
+            System.out.println("  Vocabulary from corpus statistics matches");
             
             IntegerEncoder encoder = new IntegerEncoder(vocab);
             List<List<Integer>> sequences = encoder.encodeAll(stemmed);
             for (int i = 0; i < sequences.size(); i++) {
                 System.out.println("  Doc " + (i+1) + ": " + sequences.get(i));
             }
+            int[][] arrays = encoder.encodeAllToArrays(stemmed);
+            for (int i = 0; i < arrays.length; i++) {
+                if (!Arrays.equals(arrays[i], encoder.padSequence(arrays[i], arrays[i].length))
+                        || !encoder.decode(arrays[i]).equals(encoder.decode(sequences.get(i)))) {
+                    throw new IllegalStateException("Primitive encoding differs for doc " + (i+1));
+                }
+            }
+            System.out.println("  Primitive int[] encoding matches");
             
             // Test 6: Bag-of-Words
             System.out.println("\n[Test 6] Bag-of-Words Vectorization");
@@ -80,12 +124,91 @@ public class ManualTest {
             bow.fit(stemmed);
             System.out.println("  BoW vocabulary: " + bow.getVocabularySize() + " features");
             System.out.println("  Feature names: " + bow.getFeatureNames());
+            ColumnarCorpus corpus = ColumnarCorpus.fromDocuments(stemmed);
+            BagOfWordsVectorizer columnarBow = new BagOfWordsVectorizer();
+            columnarBow.fit(corpus);
+            if (!columnarBow.getFeatureNames().equals(bow.getFeatureNames())
+                    || !columnarBow.transform(corpus).toMaps().equals(bow.transform(stemmed))) {
+                throw new IllegalStateException("Columnar BoW differs from list BoW");
+            }
+            System.out.println("  Columnar corpus BoW matches (" + corpus + ")");
+            SparseMatrix bowMatrix = columnarBow.transform(corpus);
+            for (int i = 0; i < bowMatrix.getRowCount(); i++) {
+                SequenceVector rowView = new SequenceVector.Builder().sparseRow(bowMatrix, i).build();
+                SequenceVector copied = new SequenceVector.Builder().sparseVector(bowMatrix.toMap(i)).build();
+                if (!rowView.getSparseVector().equals(copied.getSparseVector())
+                        || !rowView.toFormattedString(10).equals(copied.toFormattedString(10))) {
+                    throw new IllegalStateException("CSR row view differs for doc " + (i+1));
+                }
+            }
+            System.out.println("  CSR row views match (" + bowMatrix + ")");
             
             // Test 7: TF-IDF
             System.out.println("\n[Test 7] TF-IDF Vectorization");
             TfidfVectorizer tfidf = new TfidfVectorizer();
             tfidf.fit(stemmed);
             System.out.println("  TF-IDF vocabulary: " + tfidf.getVocabularySize() + " features");
+            TfidfVectorizer columnarTfidf = new TfidfVectorizer();
+            columnarTfidf.fit(corpus);
+            List<Map<Integer, Double>> expected = tfidf.transform(stemmed);
+            List<Map<Integer, Double>> actual = columnarTfidf.transform(corpus).toMaps();
+            if (!columnarTfidf.getIdfScores().equals(tfidf.getIdfScores())) {
+                throw new IllegalStateException("Columnar TF-IDF IDF scores differ");
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                if (!expected.get(i).keySet().equals(actual.get(i).keySet())) {
+                    throw new IllegalStateException("Columnar TF-IDF features differ for doc " + (i+1));
+                }
+                for (Map.Entry<Integer, Double> entry : expected.get(i).entrySet()) {
+                    if (Math.abs(entry.getValue() - actual.get(i).get(entry.getKey())) > 1e-12) {
+                        throw new IllegalStateException("Columnar TF-IDF value differs for doc " + (i+1));
+                    }
+                }
+            }
+            System.out.println("  Columnar corpus TF-IDF matches");
+            TFIDFCalculator lazy = new TFIDFCalculator();
+            TFIDFCalculator cached = new TFIDFCalculator(true);
+            lazy.fit(stemmed, vocab);
+            cached.fit(stemmed, vocab);
+            for (TFFormula tfFormula : TFFormula.values()) {
+                for (IDFFormula idfFormula : IDFFormula.values()) {
+                    for (int d = 0; d < stemmed.size(); d++) {
+                        if (!lazy.calculateTFIDFVector(d, tfFormula, idfFormula)
+                                .equals(cached.calculateTFIDFVector(d, tfFormula, idfFormula))) {
+                            throw new IllegalStateException("Cached " + tfFormula + "/" + idfFormula + " differs");
+                        }
+                    }
+                    if (!lazy.calculateTFIDFMatrix(tfFormula, idfFormula).toMaps()
+                            .equals(perDocument(lazy, stemmed.size(), tfFormula, idfFormula))) {
+                        throw new IllegalStateException("Batch kernel " + tfFormula + "/" + idfFormula + " differs");
+                    }
+                }
+            }
+            if (lazy.isMaterialized(TFFormula.RAW_COUNT) || !cached.isMaterialized(TFFormula.RAW_COUNT)) {
+                throw new IllegalStateException("Formula materialization is not opt-in");
+            }
+            System.out.println("  Lazy, cached and batch-kernel TF-IDF formulas match");
+            
+            // Test 7b: Feature hashing (no vocabulary)
+            System.out.println("\n[Test 7b] Hashing Vectorization");
+            HashingVectorizer hashingBow = new HashingVectorizer.Builder().alternateSign(false).build();
+            SparseMatrix hashedCounts = hashingBow.transform(stemmed);
+            HashingVectorizer hashingTfidf = new HashingVectorizer.Builder().bits(10)
+                    .mode(HashingVectorizer.Mode.TF_IDF).build();
+            SparseMatrix hashedTfidf = hashingTfidf.fitTransform(stemmed);
+            for (int i = 0; i < stemmed.size(); i++) {
+                double total = 0.0;
+                for (double value : hashingBow.transformSingle(stemmed.get(i)).values()) {
+                    total += value;
+                }
+                if (total != stemmed.get(i).size()
+                        || !hashedCounts.toMap(i).equals(hashingBow.transformSingle(stemmed.get(i)))
+                        || Math.abs(hashedTfidf.getRowNorm(i) - 1.0) > 1e-12) {
+                    throw new IllegalStateException("Hashed vector wrong for doc " + (i+1));
+                }
+            }
+            System.out.println("  Hashed features: " + hashingBow.getNumFeatures() + " buckets, "
+                    + hashedCounts.getNonZeroCount() + " nonzeros, " + hashingTfidf.getDocumentCount() + " docs in DF");
             
             // Test 8: Full Pipeline
             System.out.println("\n[Test 8] Complete Pipeline Execution");
@@ -100,6 +223,205 @@ public class ManualTest {
             System.out.println("  - BoW vectors: " + result.getBowVectors().size());
             System.out.println("  - TF-IDF vectors: " + result.getTfidfVectors().size());
             
+            // Test 8b: Parallel execution gives the same results as sequential
+            System.out.println("\n[Test 8b] Parallel Pipeline Execution");
+            List<String> manyDocuments = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                manyDocuments.add(documents.get(i % documents.size()) + " Variant" + (i % 7) + " text" + i);
+            }
+            SequencingPipeline.PipelineResult sequential = new SequencingPipeline(
+                    new SequencingPipeline.PipelineConfiguration()).execute(manyDocuments);
+            SequencingPipeline.PipelineResult parallel = new SequencingPipeline(
+                    new SequencingPipeline.PipelineConfiguration().setParallelism(3)).execute(manyDocuments);
+            for (int i = 0; i < manyDocuments.size(); i++) {
+                if (!sequential.getSequences().get(i).getTokens().equals(parallel.getSequences().get(i).getTokens())
+                        || !sequential.getSequences().get(i).getIntegerSequence().equals(
+                                parallel.getSequences().get(i).getIntegerSequence())
+                        || !sequential.getBowVectors().get(i).getSparseVector()
+                                .equals(parallel.getBowVectors().get(i).getSparseVector())
+                        || !sequential.getTfidfVectors().get(i).getSparseVector()
+                                .equals(parallel.getTfidfVectors().get(i).getSparseVector())) {
+                    throw new IllegalStateException("Parallel result differs at document " + i);
+                }
+            }
+            if (sequential.getVocabulary().getSize() != parallel.getVocabulary().getSize()) {
+                throw new IllegalStateException("Parallel vocabulary differs");
+            }
+            if (!new ArrayList<>(parallel.getBranchTimings().keySet()).equals(SequencingPipeline.BRANCHES)) {
+                throw new IllegalStateException("Missing branch timings: " + parallel.getBranchTimings());
+            }
+            System.out.println("  " + manyDocuments.size() + " docs with parallelism 3: identical to sequential");
+            
+            // Test 8c: Selected outputs only; per-document objects are views over the compact arrays
+            System.out.println("\n[Test 8c] Selected Pipeline Outputs");
+            SequencingPipeline.PipelineResult bowOnly = new SequencingPipeline(
+                    new SequencingPipeline.PipelineConfiguration()
+                            .setOutputs(SequencingPipeline.Output.BAG_OF_WORDS)).execute(manyDocuments);
+            for (int i = 0; i < manyDocuments.size(); i++) {
+                if (!bowOnly.getBowVectors().get(i).getSparseVector()
+                        .equals(sequential.getBowVectors().get(i).getSparseVector())
+                        || !Arrays.equals(sequential.getIntegerSequence(i),
+                                sequential.getSequences().get(i).getIntegerArray())) {
+                    throw new IllegalStateException("Lazy view differs at document " + i);
+                }
+            }
+            if (bowOnly.getBowMatrix().getNonZeroCount() != sequential.getBowMatrix().getNonZeroCount()
+                    || !new ArrayList<>(bowOnly.getBranchTimings().keySet()).equals(Arrays.asList("bow"))) {
+                throw new IllegalStateException("BoW-only run differs: " + bowOnly.getBranchTimings());
+            }
+            // Kết quả dựng từ danh sách vector (constructor công khai) phải cho cùng ma trận
+            SequencingPipeline.PipelineResult rebuilt = new SequencingPipeline.PipelineResult(
+                    sequential.getSequences(), sequential.getBowVectors(), sequential.getTfidfVectors(),
+                    sequential.getVocabulary(), sequential.getTfidfCalculator(), sequential.getConfiguration());
+            if (rebuilt.getTfidfMatrix().getColumnCount() != sequential.getTfidfMatrix().getColumnCount()
+                    || !rebuilt.getBowMatrix().toMaps().equals(sequential.getBowMatrix().toMaps())) {
+                throw new IllegalStateException("Matrix rebuilt from vectors differs: "
+                        + rebuilt.getBowMatrix() + " vs " + sequential.getBowMatrix());
+            }
+            try {
+                SparseMatrix.fromRows(Collections.singletonList(Collections.singletonMap(5, 1.0)), 5);
+                throw new IllegalStateException("Out-of-range column was accepted");
+            } catch (IllegalArgumentException expectedRange) {
+                // đúng như mong đợi
+            }
+            try {
+                bowOnly.getTfidfVectors();
+                throw new IllegalStateException("Unselected TF-IDF output was returned");
+            } catch (IllegalStateException unselected) {
+                if (!unselected.getMessage().contains(SequencingPipeline.Output.TF_IDF.name())) {
+                    throw unselected;
+                }
+            }
+            System.out.println("  BoW-only run: " + bowOnly.getDocumentCount() + " docs, other outputs skipped");
+            
+            // Test 8d: Saved fitted model transforms the training documents like the pipeline
+            System.out.println("\n[Test 8d] Fitted Model Save / Load / Transform");
+            Path modelFile = Files.createTempFile("fitted-model", ".bin");
+            new SequencingPipeline(new SequencingPipeline.PipelineConfiguration()).fit(manyDocuments).save(modelFile);
+            FittedPipelineModel model = FittedPipelineModel.load(modelFile);
+            FittedPipelineModel.Transformation transformed = model.transformBatch(manyDocuments);
+            for (int i = 0; i < manyDocuments.size(); i++) {
+                if (!Arrays.equals(transformed.getIntegerSequence(i), sequential.getIntegerSequence(i))
+                        || !transformed.getBowMatrix().toMap(i).equals(sequential.getBowMatrix().toMap(i))
+                        || !transformed.getTfidfMatrix().toMap(i).equals(sequential.getTfidfMatrix().toMap(i))) {
+                    throw new IllegalStateException("Loaded model transform differs at document " + i);
+                }
+            }
+            int[] unseen = model.transform("Completely unseen zyxwv words").getIntegerSequence(0);
+            System.out.println("  " + Files.size(modelFile) + " bytes, " + model.getFeatureCount()
+                    + " features; unseen text -> " + Arrays.toString(unseen));
+            Files.delete(modelFile);
+            
+            // Mô hình là ảnh chụp lúc fit: đổi cấu hình hoặc chạy lại pipeline không ảnh hưởng
+            SequencingPipeline.PipelineConfiguration fitConfig = new SequencingPipeline.PipelineConfiguration();
+            SequencingPipeline refitted = new SequencingPipeline(fitConfig);
+            FittedPipelineModel snapshot = refitted.fit(manyDocuments);
+            String probe = manyDocuments.get(0);
+            FittedPipelineModel.Transformation before = snapshot.transform(probe);
+            int vocabularyBefore = snapshot.getVocabulary().getSize();
+            fitConfig.setRemoveStopWords(false).setApplyStemming(false);
+            refitted.execute(Arrays.asList("Entirely different vocabulary appears here",
+                    "Quokkas and pangolins were never mentioned before"));
+            FittedPipelineModel.Transformation after = snapshot.transform(probe);
+            if (!Arrays.equals(before.getIntegerSequence(0), after.getIntegerSequence(0))
+                    || !before.getTfidfMatrix().toMap(0).equals(after.getTfidfMatrix().toMap(0))
+                    || snapshot.getVocabulary().getSize() != vocabularyBefore
+                    || !snapshot.getConfiguration().isApplyStemming()) {
+                throw new IllegalStateException("Fitted model changed after the pipeline was reused");
+            }
+            System.out.println("  Model unchanged after config changes and another execute()");
+            
+            // Test 9: Streaming (two-pass) pipeline writes the same vector files
+            System.out.println("\n[Test 9] Streaming Pipeline");
+            Path streamDir = Files.createTempDirectory("streaming-test");
+            Path inputFile = streamDir.resolve("input.txt");
+            Files.write(inputFile, manyDocuments, StandardCharsets.UTF_8);
+            SequencingPipeline.PipelineResult lineResult = new SequencingPipeline(config)
+                    .execute(new DocumentReader(inputFile.toString(),
+                            DocumentReader.DocumentFormat.LINE_PER_DOCUMENT).readDocuments());
+            new SequenceWriter(streamDir.resolve("bow.txt").toString()).writeVectors(lineResult.getBowVectors());
+            new SequenceWriter(streamDir.resolve("tfidf.txt").toString()).writeVectors(lineResult.getTfidfVectors());
+            
+            // Tuần tự, và song song với hàng đợi rất nhỏ để kiểm tra backpressure
+            List<SequencingPipeline.PipelineConfiguration> streamConfigs = Arrays.asList(config,
+                    new SequencingPipeline.PipelineConfiguration().setParallelism(3).setQueueCapacity(2));
+            for (SequencingPipeline.PipelineConfiguration streamConfig : streamConfigs) {
+                StreamingPipeline streaming = new StreamingPipeline(streamConfig,
+                        DocumentReader.DocumentFormat.LINE_PER_DOCUMENT);
+                // Chạy hai lần trên cùng một instance: lần sau không được mang trạng thái của lần trước
+                StreamingPipeline.StreamingResult streamed = null;
+                for (int run = 0; run < 2; run++) {
+                    streamed = streaming.execute(java.util.Collections.singletonList(inputFile.toFile()),
+                            streamDir.resolve("bow_stream.txt").toString(),
+                            streamDir.resolve("tfidf_stream.txt").toString());
+                }
+                boolean sameFiles = Arrays.equals(Files.readAllBytes(streamDir.resolve("bow.txt")),
+                                Files.readAllBytes(streamDir.resolve("bow_stream.txt")))
+                        && Arrays.equals(Files.readAllBytes(streamDir.resolve("tfidf.txt")),
+                                Files.readAllBytes(streamDir.resolve("tfidf_stream.txt")));
+                if (!sameFiles || streamed.getVocabulary().getSize() != lineResult.getVocabulary().getSize()) {
+                    throw new IllegalStateException("Streaming output differs from the in-memory pipeline");
+                }
+                System.out.println("  Streamed " + streamed.getDocumentCount() + " docs, "
+                        + streamed.getFeatureCount() + " features (parallelism "
+                        + streamConfig.getParallelism() + "): identical vector files, also on reuse");
+            }
+            for (java.io.File file : streamDir.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(streamDir);
+            
+            // Test 10: HTTP service coalesces concurrent requests and answers like the model
+            System.out.println("\n[Test 10] Vectorization Service");
+            try (VectorizationServer service = new VectorizationServer.Builder(model)
+                    .port(0).maxBatchSize(8).maxBatchDelayMicros(20_000).batchWorkers(2)
+                    .handlerThreads(2).build().start()) {
+                String base = "http://127.0.0.1:" + service.getPort();
+                ExecutorService clients = Executors.newFixedThreadPool(8);
+                List<Future<String>> responses = new ArrayList<>();
+                for (String document : manyDocuments) {
+                    responses.add(clients.submit(() -> http(base + "/encode", document)));
+                }
+                for (int i = 0; i < manyDocuments.size(); i++) {
+                    String expectedJson = "{\"ids\":" + Arrays.toString(model.transform(manyDocuments.get(i))
+                            .getIntegerSequence(0)).replace(" ", "") + "}";
+                    if (!responses.get(i).get().equals(expectedJson)) {
+                        throw new IllegalStateException("Service /encode differs at document " + i);
+                    }
+                }
+                clients.shutdown();
+                String tfidfJson = http(base + "/tfidf", manyDocuments.get(0));
+                if (!tfidfJson.startsWith("{\"features\":" + model.getFeatureCount() + ",")) {
+                    throw new IllegalStateException("Unexpected /tfidf response: " + tfidfJson);
+                }
+                if (service.getLatency("encode").getCount() != manyDocuments.size()) {
+                    throw new IllegalStateException("Latency samples missing");
+                }
+                String stats = http(base + "/stats", null);
+                String encodeStats = stats.substring(stats.indexOf("\"encode\""), stats.indexOf("\"bow\""));
+                long encodeBatches = Long.parseLong(encodeStats.replaceAll(".*\"batches\":(\\d+).*", "$1"));
+                // Chỉ 2 luồng handler: batch trung bình > 2 nghĩa là handler không chờ batch
+                if (encodeBatches * 2 >= manyDocuments.size()) {
+                    throw new IllegalStateException("Concurrent requests were not coalesced: " + encodeStats);
+                }
+                System.out.println("  " + stats);
+            }
+            
+            // Closing the batcher fails an item whose batch is still being filled
+            MicroBatcher<String, String> batcher = new MicroBatcher<>("close-test", texts -> texts, 8, 10_000_000, 1);
+            CompletableFuture<String> waiting = batcher.submit("x");
+            Thread.sleep(50);
+            batcher.close();
+            try {
+                waiting.get(2, TimeUnit.SECONDS);
+                throw new IllegalStateException("Item completed normally after close");
+            } catch (ExecutionException closedError) {
+                if (!(closedError.getCause() instanceof IllegalStateException)) {
+                    throw closedError;
+                }
+            }
+            System.out.println("  close(): item of a partially filled batch failed");
+            
             // Success
             System.out.println("\n" + "=".repeat(80));
             System.out.println("✅ ALL TESTS PASSED SUCCESSFULLY!");
@@ -111,4 +433,39 @@ public class ManualTest {
             System.exit(1);
         }
     }
+    
+    /**
+     * POST a body (or GET when null) and return the response body
+     */
+    private static String http(String url, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (body != null) {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IllegalStateException(url + " returned HTTP " + connection.getResponseCode());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    private static List<Map<Integer, Double>> perDocument(TFIDFCalculator calculator, int documents,
+                                                         TFFormula tfFormula, IDFFormula idfFormula) {
+        List<Map<Integer, Double>> vectors = new ArrayList<>(documents);
+        for (int d = 0; d < documents; d++) {
+            vectors.add(calculator.calculateTFIDFVector(d, tfFormula, idfFormula));
+        }
+        return vectors;
+    }
 }
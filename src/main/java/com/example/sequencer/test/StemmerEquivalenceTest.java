@@ -0,0 +1,129 @@
+package com.example.sequencer.test;
+
+import com.example.sequencer.io.DocumentReader;
+import com.example.sequencer.io.ParallelDocumentLoader;
+import com.example.sequencer.preprocessing.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * StemmerEquivalenceTest - Checks that the char[] stemming engine matches the String engine
+ * Stems every distinct word of Data/Input with both engines (caches disabled), then
+ * compares their throughput over the full token stream.
+ * Usage: StemmerEquivalenceTest [inputFolder]
+ */
+public class StemmerEquivalenceTest {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String folder = args.length > 0 ? args[0] : "Data/Input";
+        System.out.println("=".repeat(80));
+        System.out.println("STEMMER ENGINE EQUIVALENCE TEST");
+        System.out.println("=".repeat(80));
+
+        try {
+            List<File> files = ParallelDocumentLoader.listTextFiles(folder);
+            if (files.isEmpty()) {
+                throw new IllegalStateException("No .txt files found in " + folder);
+            }
+            List<String> documents = new ParallelDocumentLoader(DocumentReader.DocumentFormat.LINE_PER_DOCUMENT)
+                    .readAllDocuments(files);
+
+            // Corpus tokens as the pipeline sees them, plus mixed-case tokens
+            TextPreprocessor preprocessor = new TextPreprocessor.Builder().build();
+            TextPreprocessor caseKeeping = new TextPreprocessor.Builder().convertToLowercase(false).build();
+            Tokenizer tokenizer = new Tokenizer();
+            List<String> tokenStream = new ArrayList<>();
+            Set<String> vocabulary = new LinkedHashSet<>();
+            Set<String> mixedCase = new LinkedHashSet<>();
+            for (String doc : documents) {
+                List<String> tokens = tokenizer.tokenize(doc, preprocessor);
+                tokenStream.addAll(tokens);
+                vocabulary.addAll(tokens);
+                mixedCase.addAll(tokenizer.tokenize(doc, caseKeeping));
+            }
+            Set<String> protectedWords = preprocessor.getProtectedWords();
+            System.out.println("\nDocuments: " + documents.size() + ", tokens: " + tokenStream.size()
+                    + ", distinct words: " + vocabulary.size() + ", protected: " + protectedWords.size());
+
+            PorterStemmer stringEngine = new PorterStemmer(0, PorterStemmer.Engine.STRING);
+            PorterStemmer charEngine = new PorterStemmer(0, PorterStemmer.Engine.CHAR_ARRAY);
+
+            // [1] Known words only, [2] known + protected words
+            System.out.println("\n[Test 1] Known words");
+            stringEngine.setKnownWords(vocabulary);
+            charEngine.setKnownWords(vocabulary);
+            compare(stringEngine, charEngine, vocabulary);
+            compare(stringEngine, charEngine, mixedCase);
+
+            System.out.println("\n[Test 2] Known + protected words");
+            stringEngine.setProtectedWords(protectedWords);
+            charEngine.setProtectedWords(protectedWords);
+            compare(stringEngine, charEngine, vocabulary);
+            compare(stringEngine, charEngine, mixedCase);
+
+            System.out.println("\n[Test 3] Throughput over " + tokenStream.size() + " tokens");
+            double stringRate = throughput(stringEngine, tokenStream);
+            double charRate = throughput(charEngine, tokenStream);
+            System.out.printf("  STRING:     %,.0f tokens/s%n", stringRate);
+            System.out.printf("  CHAR_ARRAY: %,.0f tokens/s (%.2fx)%n", charRate, charRate / stringRate);
+
+            System.out.println("\n" + "=".repeat(80));
+            System.out.println("✅ STEMMER ENGINES ARE EQUIVALENT");
+            System.out.println("=".repeat(80));
+
+        } catch (Exception e) {
+            System.err.println("\n❌ TEST FAILED:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void compare(PorterStemmer expected, PorterStemmer actual, Set<String> words) {
+        int mismatches = 0;
+        for (String word : words) {
+            String a = expected.stem(word);
+            String b = actual.stem(word);
+            if (!a.equals(b)) {
+                if (mismatches < 10) {
+                    System.out.println("  Mismatch: " + word + " → " + a + " vs " + b);
+                }
+                mismatches++;
+            }
+        }
+        if (mismatches > 0) {
+            throw new IllegalStateException(mismatches + " of " + words.size() + " words stem differently");
+        }
+        System.out.println("  " + words.size() + " words stem identically");
+    }
+
+    private static double throughput(PorterStemmer stemmer, List<String> tokens) {
+        long checksum = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            checksum += stemAll(stemmer, tokens);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            checksum += stemAll(stemmer, tokens);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum == 0) {
+            System.out.println("  (empty input)");
+        }
+        return (double) tokens.size() * MEASURED_ROUNDS / (elapsed / 1e9);
+    }
+
+    private static long stemAll(PorterStemmer stemmer, List<String> tokens) {
+        long length = 0;
+        for (String token : tokens) {
+            length += stemmer.stem(token).length();
+        }
+        return length;
+    }
+}
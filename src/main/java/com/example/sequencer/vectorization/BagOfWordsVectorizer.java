@@ -1,5 +1,9 @@
 package com.example.sequencer.vectorization;
 
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
+import com.example.sequencer.model.SparseMatrix;
+
 import java.util.*;
 
 /**
@@ -18,6 +22,8 @@ public class BagOfWordsVectorizer {
     private final List<String> vocabulary;
     private final Map<String, Integer> vocabularyIndex;
     private final boolean binary;
+    // Ánh xạ term id → feature của bộ thống kê gần nhất, dùng chung cho mọi khoảng tài liệu
+    private volatile Prepared prepared;
     
     public BagOfWordsVectorizer() {
         this(false);
@@ -48,6 +54,25 @@ public class BagOfWordsVectorizer {
             vocabulary.add(token);
             vocabularyIndex.put(token, index++);
         }
+        prepared = null;
+        
+        System.out.println("BoW vocabulary fitted: " + vocabulary.size() + " unique features");
+    }
+    
+    /**
+     * Fit the vectorizer on a columnar corpus
+     * Corpus term ids are already in first-appearance order, so they become the feature indices.
+     * @param corpus Columnar corpus
+     */
+    public void fit(ColumnarCorpus corpus) {
+        int index = vocabulary.size();
+        for (String term : corpus.getTerms()) {
+            if (!vocabularyIndex.containsKey(term)) {
+                vocabulary.add(term);
+                vocabularyIndex.put(term, index++);
+            }
+        }
+        prepared = null;
         
         System.out.println("BoW vocabulary fitted: " + vocabulary.size() + " unique features");
     }
@@ -69,6 +94,83 @@ public class BagOfWordsVectorizer {
         return bowVectors;
     }
     
+    /**
+     * Transform a columnar corpus to BoW vectors
+     * @param corpus Columnar corpus
+     * @return BoW vectors as a CSR matrix (one row per document)
+     */
+    public SparseMatrix transform(ColumnarCorpus corpus) {
+        return transform(CorpusStatistics.of(corpus));
+    }
+    
+    /**
+     * Transform to BoW vectors from precomputed corpus statistics
+     * The per-document term counts are already there; only feature indices are mapped.
+     * @param statistics Shared corpus statistics
+     * @return BoW vectors as a CSR matrix (one row per document)
+     */
+    public SparseMatrix transform(CorpusStatistics statistics) {
+        return transform(statistics, 0, statistics.getDocumentCount());
+    }
+    
+    /**
+     * Transform a range of documents; ranges can be transformed concurrently and stacked
+     * @param statistics Shared corpus statistics
+     * @param fromDocument First document (inclusive)
+     * @param toDocument Last document (exclusive)
+     * @return BoW vectors of the range as a CSR matrix
+     */
+    public SparseMatrix transform(CorpusStatistics statistics, int fromDocument, int toDocument) {
+        int[] featureOf = prepared(statistics).featureOf;
+        int[] termOffsets = statistics.getDocumentTermOffsets();
+        int[] terms = statistics.getDocumentTerms();
+        int[] counts = statistics.getDocumentTermCounts();
+        SparseMatrix.Builder matrix = new SparseMatrix.Builder(vocabulary.size(),
+                termOffsets[toDocument] - termOffsets[fromDocument]);
+        
+        for (int d = fromDocument; d < toDocument; d++) {
+            for (int j = termOffsets[d]; j < termOffsets[d + 1]; j++) {
+                int feature = featureOf[terms[j]];
+                if (feature >= 0) {
+                    matrix.add(feature, binary ? 1.0 : counts[j]);
+                }
+            }
+            matrix.endRow();
+        }
+        
+        return matrix.build();
+    }
+    
+    /**
+     * Map corpus term ids to feature indices (-1 for terms outside the vocabulary)
+     * Done once per fit and statistics; call before transforming ranges concurrently,
+     * otherwise the first range transform does it.
+     * @param statistics Shared corpus statistics
+     */
+    public void prepare(CorpusStatistics statistics) {
+        prepared(statistics);
+    }
+    
+    private Prepared prepared(CorpusStatistics statistics) {
+        Prepared current = prepared;
+        if (current != null && current.statistics == statistics) {
+            return current;
+        }
+        synchronized (this) {
+            current = prepared;
+            if (current == null || current.statistics != statistics) {
+                ColumnarCorpus corpus = statistics.getCorpus();
+                int[] featureOf = new int[corpus.getDistinctTermCount()];
+                for (int t = 0; t < featureOf.length; t++) {
+                    featureOf[t] = vocabularyIndex.getOrDefault(corpus.getTerm(t), -1);
+                }
+                current = new Prepared(statistics, featureOf);
+                prepared = current;
+            }
+            return current;
+        }
+    }
+    
     /**
      * Transform a single document to BoW vector
      * @param tokens List of tokens
@@ -141,4 +243,14 @@ public class BagOfWordsVectorizer {
         stats.put("vectorization_type", "Bag-of-Words");
         return stats;
     }
+    
+    private static final class Prepared {
+        final CorpusStatistics statistics;
+        final int[] featureOf;
+        
+        Prepared(CorpusStatistics statistics, int[] featureOf) {
+            this.statistics = statistics;
+            this.featureOf = featureOf;
+        }
+    }
 }
@@ -0,0 +1,310 @@
+package com.example.sequencer.vectorization;
+
+import com.example.sequencer.model.SparseMatrix;
+
+import java.util.*;
+
+/**
+ * HashingVectorizer - Vocabulary-free BoW / TF-IDF using the hashing trick
+ * Each token is hashed (MurmurHash3, 32-bit) into one of 2^k buckets; a second hash
+ * bit gives the sign, so colliding tokens tend to cancel instead of accumulating.
+ *
+ * BoW mode is a stateless transform. TF-IDF mode additionally needs document
+ * frequencies, which are accumulated per bucket with {@link #partialFit(List)} as
+ * documents stream in. Memory is fixed by the bucket count, not the vocabulary.
+ */
+public class HashingVectorizer {
+
+    public static final int DEFAULT_BITS = 20;
+    private static final int MAX_BITS = 30;
+    private static final int SEED = 0;
+
+    public enum Mode {
+        BAG_OF_WORDS,
+        TF_IDF
+    }
+
+    private final int bits;
+    private final int mask;
+    private final Mode mode;
+    private final boolean alternateSign;
+    private final boolean binary;
+    private final boolean sublinearTf;
+
+    // Tần suất tài liệu theo bucket (chỉ dùng cho TF-IDF)
+    private final int[] documentFrequencies;
+    private volatile long documentCount;
+
+    private HashingVectorizer(Builder builder) {
+        this.bits = builder.bits;
+        this.mask = (1 << builder.bits) - 1;
+        this.mode = builder.mode;
+        this.alternateSign = builder.alternateSign;
+        this.binary = builder.binary;
+        this.sublinearTf = builder.sublinearTf;
+        this.documentFrequencies = builder.mode == Mode.TF_IDF ? new int[1 << builder.bits] : new int[0];
+    }
+
+    /**
+     * Bucket index of a token
+     * @param token Input token
+     * @return Index in [0, 2^bits)
+     */
+    public int bucketOf(String token) {
+        return murmur3(token) & mask;
+    }
+
+    /**
+     * Sign applied to a token's contribution (+1 or -1; always +1 without alternate sign)
+     */
+    public int signOf(String token) {
+        return !alternateSign || murmur3(token) >= 0 ? 1 : -1;
+    }
+
+    /**
+     * Add one document to the streaming document frequencies (TF-IDF mode)
+     * Calls are serialized; transforms may run concurrently and see the counts so far.
+     * @param tokens Tokens of the document
+     */
+    public synchronized void partialFit(List<String> tokens) {
+        if (mode != Mode.TF_IDF) {
+            return;
+        }
+        long[] keys = hashedKeys(tokens);
+        int previous = -1;
+        for (long key : keys) {
+            int bucket = (int) (key >>> 1);
+            if (bucket != previous) {
+                documentFrequencies[bucket]++;
+                previous = bucket;
+            }
+        }
+        documentCount++;
+    }
+
+    /**
+     * Add a batch of documents to the streaming document frequencies
+     * @param tokenizedDocuments List of tokenized documents
+     */
+    public void partialFitAll(List<List<String>> tokenizedDocuments) {
+        for (List<String> tokens : tokenizedDocuments) {
+            partialFit(tokens);
+        }
+    }
+
+    /**
+     * Transform a single document to a hashed vector
+     * @param tokens List of tokens
+     * @return Sparse vector (bucket index to value)
+     */
+    public Map<Integer, Double> transformSingle(List<String> tokens) {
+        SparseMatrix.Builder row = new SparseMatrix.Builder(getNumFeatures(), tokens.size());
+        appendRow(tokens, row);
+        return row.build().toMap(0);
+    }
+
+    /**
+     * Transform documents to hashed vectors
+     * @param tokenizedDocuments List of tokenized documents
+     * @return CSR matrix with one row per document and 2^bits columns
+     */
+    public SparseMatrix transform(List<List<String>> tokenizedDocuments) {
+        int expected = 0;
+        for (List<String> tokens : tokenizedDocuments) {
+            expected += tokens.size();
+        }
+        SparseMatrix.Builder matrix = new SparseMatrix.Builder(getNumFeatures(), expected);
+        for (List<String> tokens : tokenizedDocuments) {
+            appendRow(tokens, matrix);
+        }
+        return matrix.build();
+    }
+
+    /**
+     * Accumulate document frequencies and transform in one step
+     * @param tokenizedDocuments List of tokenized documents
+     * @return CSR matrix with one row per document
+     */
+    public SparseMatrix fitTransform(List<List<String>> tokenizedDocuments) {
+        partialFitAll(tokenizedDocuments);
+        return transform(tokenizedDocuments);
+    }
+
+    private void appendRow(List<String> tokens, SparseMatrix.Builder matrix) {
+        long[] keys = hashedKeys(tokens);
+        long documents = documentCount;
+        int i = 0;
+        while (i < keys.length) {
+            int bucket = (int) (keys[i] >>> 1);
+            int count = 0;
+            for (; i < keys.length && (int) (keys[i] >>> 1) == bucket; i++) {
+                count += (keys[i] & 1L) != 0 ? -1 : 1;
+            }
+            if (count == 0) {
+                // Các token trùng bucket triệt tiêu nhau
+                continue;
+            }
+            matrix.add(bucket, mode == Mode.TF_IDF
+                    ? tf(count, tokens.size()) * idf(bucket, documents)
+                    : binary ? Math.signum(count) : count);
+        }
+        if (mode == Mode.TF_IDF) {
+            matrix.normalizeRowL2();
+        }
+        matrix.endRow();
+    }
+
+    private double tf(int count, int totalTerms) {
+        if (sublinearTf) {
+            return Math.signum(count) * (1.0 + Math.log(Math.abs(count)));
+        }
+        return (double) count / totalTerms;
+    }
+
+    private double idf(int bucket, long documents) {
+        int documentFrequency = documentFrequencies[bucket];
+        if (documentFrequency == 0) {
+            // Bucket chưa gặp khi fit: giống TfidfVectorizer với token lạ
+            return 1.0;
+        }
+        return Math.log((double) (documents + 1) / (documentFrequency + 1)) + 1.0;
+    }
+
+    /**
+     * Sorted (bucket << 1 | negative) keys of a document's tokens
+     */
+    private long[] hashedKeys(List<String> tokens) {
+        long[] keys = new long[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            int hash = murmur3(token);
+            boolean negative = alternateSign && hash < 0;
+            keys[i++] = ((long) (hash & mask) << 1) | (negative ? 1L : 0L);
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * MurmurHash3 (x86, 32-bit) over the UTF-16 code units of a string
+     */
+    static int murmur3(String token) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int length = token.length();
+        int h = SEED;
+        int i = 0;
+
+        for (; i + 1 < length; i += 2) {
+            int k = token.charAt(i) | (token.charAt(i + 1) << 16);
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+        if (i < length) {
+            int k = token.charAt(i);
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+        }
+
+        h ^= length * 2;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Number of output features (2^bits)
+     */
+    public int getNumFeatures() {
+        return 1 << bits;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Number of documents seen by {@link #partialFit(List)}
+     */
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Document frequency accumulated for a bucket (0 in BoW mode)
+     */
+    public int getDocumentFrequency(int bucket) {
+        return mode == Mode.TF_IDF ? documentFrequencies[bucket] : 0;
+    }
+
+    /**
+     * Get statistics about the hashing model
+     * @return Statistics map
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("num_features", getNumFeatures());
+        stats.put("mode", mode);
+        stats.put("alternate_sign", alternateSign);
+        stats.put("binary_mode", binary);
+        stats.put("sublinear_tf", sublinearTf);
+        stats.put("documents_seen", documentCount);
+        stats.put("vectorization_type", "Hashing");
+        return stats;
+    }
+
+    /**
+     * Builder for HashingVectorizer
+     */
+    public static class Builder {
+        private int bits = DEFAULT_BITS;
+        private Mode mode = Mode.BAG_OF_WORDS;
+        private boolean alternateSign = true;
+        private boolean binary = false;
+        private boolean sublinearTf = false;
+
+        /**
+         * Use 2^bits buckets (1..30, default 20)
+         */
+        public Builder bits(int bits) {
+            if (bits < 1 || bits > MAX_BITS) {
+                throw new IllegalArgumentException("bits must be in [1, " + MAX_BITS + "]: " + bits);
+            }
+            this.bits = bits;
+            return this;
+        }
+
+        public Builder mode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder alternateSign(boolean alternateSign) {
+            this.alternateSign = alternateSign;
+            return this;
+        }
+
+        public Builder binary(boolean binary) {
+            this.binary = binary;
+            return this;
+        }
+
+        public Builder sublinearTf(boolean sublinearTf) {
+            this.sublinearTf = sublinearTf;
+            return this;
+        }
+
+        public HashingVectorizer build() {
+            return new HashingVectorizer(this);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.sequencer.vectorization;
 
 import com.example.sequencer.encoding.Vocabulary;
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
+import com.example.sequencer.model.SparseMatrix;
 import java.util.*;
 
 /**
@@ -9,172 +12,246 @@ import java.util.*;
  * 
  * This calculator computes TF and IDF separately using various formulas,
  * and provides the ability to combine them for TF-IDF scores.
+ * 
+ * Only the raw counts (shared CorpusStatistics) are kept after fitting; any
+ * (TFFormula, IDFFormula) pair is evaluated on demand. A formula can be
+ * materialized into a compact array, explicitly or on first access.
  */
 public class TFIDFCalculator {
     
     private Vocabulary vocabulary;
     private final Map<String, Integer> vocabularyIndex;
+    private final boolean cacheOnFirstAccess;
     
-    // Store all TF values for each document and each formula
-    private Map<TFFormula, List<Map<Integer, Double>>> allTFValues;
-    
-    // Store all IDF values for each formula
-    private Map<IDFFormula, Map<Integer, Double>> allIDFValues;
+    // Materialized formulas: TF aligned with the CSR count positions, IDF by vocabulary index
+    private final Map<TFFormula, double[]> tfCache;
+    private final Map<IDFFormula, double[]> idfCache;
     
-    // Document statistics
-    private List<Map<String, Integer>> documentTermCounts;
-    private List<Integer> documentTotalTerms;
-    private List<Integer> documentMaxTermCounts;
-    private Map<String, Integer> documentFrequencies;
+    // Document statistics, keyed by corpus term id
+    private CorpusStatistics statistics;
+    private ColumnarCorpus corpus;
+    private int[] vocabularyTerms;
+    private int[] termToVocabulary;
+    private int[] vocabularyDocumentFrequencies;
     private int totalDocuments;
-    private int maxDocumentFrequency;
     
     public TFIDFCalculator() {
+        this(false);
+    }
+    
+    /**
+     * @param cacheOnFirstAccess Materialize a formula the first time one of its values is read
+     */
+    public TFIDFCalculator(boolean cacheOnFirstAccess) {
         this.vocabulary = null;
         this.vocabularyIndex = new HashMap<>();
-        this.allTFValues = new HashMap<>();
-        this.allIDFValues = new HashMap<>();
-        this.documentTermCounts = new ArrayList<>();
-        this.documentTotalTerms = new ArrayList<>();
-        this.documentMaxTermCounts = new ArrayList<>();
-        this.documentFrequencies = new HashMap<>();
+        this.cacheOnFirstAccess = cacheOnFirstAccess;
+        this.tfCache = Collections.synchronizedMap(new EnumMap<>(TFFormula.class));
+        this.idfCache = Collections.synchronizedMap(new EnumMap<>(IDFFormula.class));
     }
     
     /**
-     * Fit the calculator to compute all TF and IDF values for all formulas
+     * Fit the calculator on tokenized documents
      * @param tokenizedDocuments The tokenized documents to fit on
      * @param sharedVocabulary The vocabulary to use (shared from pipeline)
      */
     public void fit(List<List<String>> tokenizedDocuments, Vocabulary sharedVocabulary) {
+        fit(ColumnarCorpus.fromDocuments(tokenizedDocuments), sharedVocabulary);
+    }
+    
+    /**
+     * Fit the calculator on a columnar corpus
+     * @param corpus The columnar corpus to fit on
+     * @param sharedVocabulary The vocabulary to use (shared from pipeline)
+     */
+    public void fit(ColumnarCorpus corpus, Vocabulary sharedVocabulary) {
+        fit(CorpusStatistics.of(corpus), sharedVocabulary);
+    }
+    
+    /**
+     * Fit the calculator from precomputed corpus statistics
+     * No formula is evaluated here; values are computed when they are read.
+     * @param statistics Shared corpus statistics
+     * @param sharedVocabulary The vocabulary to use (shared from pipeline)
+     */
+    public void fit(CorpusStatistics statistics, Vocabulary sharedVocabulary) {
         this.vocabulary = sharedVocabulary;
-        this.totalDocuments = tokenizedDocuments.size();
+        this.statistics = statistics;
+        this.corpus = statistics.getCorpus();
+        this.totalDocuments = statistics.getDocumentCount();
+        clearCache();
         
-        // Build vocabulary and collect statistics
-        buildVocabularyAndStatistics(tokenizedDocuments);
-        
-        // Calculate all TF values for all formulas
-        calculateAllTFValues(tokenizedDocuments);
-        
-        // Calculate all IDF values for all formulas
-        calculateAllIDFValues();
+        // Index the shared vocabulary against the corpus terms
+        buildVocabularyIndex();
         
         System.out.println("TF-IDF Calculator fitted:");
         System.out.println("  Vocabulary size: " + vocabulary.getSize());
         System.out.println("  Total documents: " + totalDocuments);
-        System.out.println("  TF formulas computed: " + TFFormula.values().length);
-        System.out.println("  IDF formulas computed: " + IDFFormula.values().length);
+        System.out.println("  TF formulas available: " + TFFormula.values().length);
+        System.out.println("  IDF formulas available: " + IDFFormula.values().length);
     }
     
     /**
-     * Build vocabulary index and collect document statistics
+     * Build vocabulary index
      * Note: Vocabulary is already built by the pipeline, we just need to index it
      */
-    private void buildVocabularyAndStatistics(List<List<String>> tokenizedDocuments) {
-        // Build vocabulary index from the shared vocabulary
+    private void buildVocabularyIndex() {
+        vocabularyIndex.clear();
+        vocabularyTerms = new int[vocabulary.getSize()];
         int index = 0;
         for (String token : vocabulary.getAllTokens()) {
+            vocabularyTerms[index] = corpus.indexOf(token);
             vocabularyIndex.put(token, index++);
         }
         
-        // Collect document statistics
-        maxDocumentFrequency = 0;
-        
-        for (List<String> tokens : tokenizedDocuments) {
-            // Count terms in this document
-            Map<String, Integer> termCounts = new HashMap<>();
-            int maxCount = 0;
-            
-            for (String token : tokens) {
-                int count = termCounts.getOrDefault(token, 0) + 1;
-                termCounts.put(token, count);
-                maxCount = Math.max(maxCount, count);
-            }
-            
-            documentTermCounts.add(termCounts);
-            documentTotalTerms.add(tokens.size());
-            documentMaxTermCounts.add(maxCount);
-            
-            // Update document frequencies
-            Set<String> uniqueInDoc = new HashSet<>(tokens);
-            for (String token : uniqueInDoc) {
-                int df = documentFrequencies.getOrDefault(token, 0) + 1;
-                documentFrequencies.put(token, df);
-                maxDocumentFrequency = Math.max(maxDocumentFrequency, df);
+        // Term id của corpus -> chỉ số trong vocabulary dùng chung (-1 nếu không có)
+        termToVocabulary = new int[corpus.getDistinctTermCount()];
+        vocabularyDocumentFrequencies = new int[vocabularyTerms.length];
+        Arrays.fill(termToVocabulary, -1);
+        for (int i = 0; i < vocabularyTerms.length; i++) {
+            if (vocabularyTerms[i] >= 0) {
+                termToVocabulary[vocabularyTerms[i]] = i;
+                vocabularyDocumentFrequencies[i] = statistics.getDocumentFrequency(vocabularyTerms[i]);
             }
         }
     }
     
     /**
-     * Calculate TF values for all documents using all formulas
+     * Evaluate a TF formula for every stored (document, term) count and keep the result
+     * @param formula TF formula to materialize
+     */
+    public void materialize(TFFormula formula) {
+        tfValues(formula);
+    }
+    
+    /**
+     * Evaluate an IDF formula for every vocabulary term and keep the result
+     * @param formula IDF formula to materialize
+     */
+    public void materialize(IDFFormula formula) {
+        idfValues(formula);
+    }
+    
+    public boolean isMaterialized(TFFormula formula) {
+        return tfCache.containsKey(formula);
+    }
+    
+    public boolean isMaterialized(IDFFormula formula) {
+        return idfCache.containsKey(formula);
+    }
+    
+    /**
+     * Drop all materialized formulas
      */
-    private void calculateAllTFValues(List<List<String>> tokenizedDocuments) {
-        for (TFFormula tfFormula : TFFormula.values()) {
-            List<Map<Integer, Double>> tfVectors = new ArrayList<>();
-            
-            for (int docIdx = 0; docIdx < tokenizedDocuments.size(); docIdx++) {
-                Map<String, Integer> termCounts = documentTermCounts.get(docIdx);
-                int totalTerms = documentTotalTerms.get(docIdx);
-                int maxTermCount = documentMaxTermCounts.get(docIdx);
-                
-                Map<Integer, Double> tfVector = new HashMap<>();
-                
-                for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
-                    String token = entry.getKey();
-                    int count = entry.getValue();
-                    
-                    if (vocabularyIndex.containsKey(token)) {
-                        int tokenIndex = vocabularyIndex.get(token);
-                        double tf = tfFormula.calculate(count, totalTerms, maxTermCount);
-                        tfVector.put(tokenIndex, tf);
-                    }
+    public void clearCache() {
+        tfCache.clear();
+        idfCache.clear();
+    }
+    
+    private double[] tfValues(TFFormula formula) {
+        return tfCache.computeIfAbsent(formula, f -> TfidfKernels.termFrequencies(f, statistics, null));
+    }
+    
+    private double[] idfValues(IDFFormula formula) {
+        return idfCache.computeIfAbsent(formula, this::computeIDFValues);
+    }
+    
+    private double[] computeIDFValues(IDFFormula formula) {
+        return TfidfKernels.inverseDocumentFrequencies(formula, vocabularyDocumentFrequencies,
+                totalDocuments, statistics.getMaxDocumentFrequency(), null);
+    }
+    
+    /**
+     * TF-IDF of every stored (document, term) count for one formula combination
+     * Runs the batch kernels over the CSR counts; materialized formulas are reused.
+     * Terms outside the shared vocabulary get 0.
+     * @return Values aligned with the CSR positions of {@link #getCorpusStatistics()}
+     */
+    public double[] calculateTFIDFValues(TFFormula tfFormula, IDFFormula idfFormula) {
+        if (statistics == null) {
+            return new double[0];
+        }
+        double[] idf = cacheOnFirstAccess ? idfValues(idfFormula) : idfCache.get(idfFormula);
+        if (idf == null) {
+            idf = computeIDFValues(idfFormula);
+        }
+        double[] idfByTerm = new double[termToVocabulary.length];
+        for (int t = 0; t < idfByTerm.length; t++) {
+            idfByTerm[t] = termToVocabulary[t] >= 0 ? idf[termToVocabulary[t]] : 0.0;
+        }
+        
+        double[] tf = cacheOnFirstAccess ? tfValues(tfFormula) : tfCache.get(tfFormula);
+        if (tf == null) {
+            // TF tạm thời, không dùng chung nên ghi đè tại chỗ
+            tf = TfidfKernels.termFrequencies(tfFormula, statistics, null);
+            return TfidfKernels.multiplyByTerm(tf, statistics.getDocumentTerms(), idfByTerm, tf);
+        }
+        return TfidfKernels.multiplyByTerm(tf, statistics.getDocumentTerms(), idfByTerm, null);
+    }
+    
+    /**
+     * TF-IDF matrix for one formula combination, columns indexed by vocabulary
+     * @return One row per document
+     */
+    public SparseMatrix calculateTFIDFMatrix(TFFormula tfFormula, IDFFormula idfFormula) {
+        if (statistics == null) {
+            return new SparseMatrix.Builder(0).build();
+        }
+        double[] values = calculateTFIDFValues(tfFormula, idfFormula);
+        SparseMatrix.Builder matrix = new SparseMatrix.Builder(getVocabularySize(), values.length);
+        int[] termOffsets = statistics.getDocumentTermOffsets();
+        int[] terms = statistics.getDocumentTerms();
+        for (int d = 0; d < totalDocuments; d++) {
+            for (int j = termOffsets[d]; j < termOffsets[d + 1]; j++) {
+                if (termToVocabulary[terms[j]] >= 0) {
+                    matrix.add(termToVocabulary[terms[j]], values[j]);
                 }
-                
-                tfVectors.add(tfVector);
             }
-            
-            allTFValues.put(tfFormula, tfVectors);
+            matrix.endRow();
         }
+        return matrix.build();
+    }
+    
+    private double computeIDF(int termIndex, IDFFormula formula) {
+        return formula.calculate(totalDocuments, getDocumentFrequency(termIndex),
+                statistics.getMaxDocumentFrequency());
     }
     
     /**
-     * Calculate IDF values for all terms using all formulas
+     * TF value at a CSR count position of a document
      */
-    private void calculateAllIDFValues() {
-        for (IDFFormula idfFormula : IDFFormula.values()) {
-            Map<Integer, Double> idfVector = new HashMap<>();
-            
-            for (int i = 0; i < vocabulary.getSize(); i++) {
-                String token = vocabulary.getToken(i);
-                int df = documentFrequencies.getOrDefault(token, 0);
-                
-                double idf = idfFormula.calculate(totalDocuments, df, maxDocumentFrequency);
-                idfVector.put(i, idf);
-            }
-            
-            allIDFValues.put(idfFormula, idfVector);
+    private double tfAt(int documentIndex, int position, TFFormula formula) {
+        double[] cached = cacheOnFirstAccess ? tfValues(formula) : tfCache.get(formula);
+        if (cached != null) {
+            return cached[position];
         }
+        return formula.calculate(statistics.getDocumentTermCounts()[position],
+                statistics.getTotalTerms(documentIndex), statistics.getMaxTermCount(documentIndex));
     }
     
     /**
      * Get TF value for a specific term in a specific document using a specific formula
      */
     public double getTF(int documentIndex, int termIndex, TFFormula formula) {
-        List<Map<Integer, Double>> tfVectors = allTFValues.get(formula);
-        if (tfVectors == null || documentIndex >= tfVectors.size()) {
+        if (statistics == null || documentIndex < 0 || documentIndex >= totalDocuments
+                || termIndex < 0 || termIndex >= vocabularyTerms.length || vocabularyTerms[termIndex] < 0) {
             return 0.0;
         }
-        return tfVectors.get(documentIndex).getOrDefault(termIndex, 0.0);
+        int[] termOffsets = statistics.getDocumentTermOffsets();
+        int position = Arrays.binarySearch(statistics.getDocumentTerms(),
+                termOffsets[documentIndex], termOffsets[documentIndex + 1], vocabularyTerms[termIndex]);
+        return position >= 0 ? tfAt(documentIndex, position, formula) : 0.0;
     }
     
     /**
      * Get IDF value for a specific term using a specific formula
      */
     public double getIDF(int termIndex, IDFFormula formula) {
-        Map<Integer, Double> idfVector = allIDFValues.get(formula);
-        if (idfVector == null) {
+        if (statistics == null || termIndex < 0 || termIndex >= vocabularyTerms.length) {
             return 0.0;
         }
-        return idfVector.getOrDefault(termIndex, 0.0);
+        double[] cached = cacheOnFirstAccess ? idfValues(formula) : idfCache.get(formula);
+        return cached != null ? cached[termIndex] : computeIDF(termIndex, formula);
     }
     
     /**
@@ -190,22 +267,33 @@ public class TFIDFCalculator {
      * Get all TF values for a document using a specific formula
      */
     public Map<Integer, Double> getTFVector(int documentIndex, TFFormula formula) {
-        List<Map<Integer, Double>> tfVectors = allTFValues.get(formula);
-        if (tfVectors == null || documentIndex >= tfVectors.size()) {
-            return new HashMap<>();
+        Map<Integer, Double> tfVector = new HashMap<>();
+        if (statistics == null || documentIndex < 0 || documentIndex >= totalDocuments) {
+            return tfVector;
         }
-        return new HashMap<>(tfVectors.get(documentIndex));
+        int[] termOffsets = statistics.getDocumentTermOffsets();
+        int[] terms = statistics.getDocumentTerms();
+        for (int j = termOffsets[documentIndex]; j < termOffsets[documentIndex + 1]; j++) {
+            int termIndex = termToVocabulary[terms[j]];
+            if (termIndex >= 0) {
+                tfVector.put(termIndex, tfAt(documentIndex, j, formula));
+            }
+        }
+        return tfVector;
     }
     
     /**
      * Get all IDF values using a specific formula
      */
     public Map<Integer, Double> getIDFVector(IDFFormula formula) {
-        Map<Integer, Double> idfVector = allIDFValues.get(formula);
-        if (idfVector == null) {
-            return new HashMap<>();
+        Map<Integer, Double> idfVector = new HashMap<>();
+        if (statistics == null) {
+            return idfVector;
+        }
+        for (int i = 0; i < vocabularyTerms.length; i++) {
+            idfVector.put(i, getIDF(i, formula));
         }
-        return new HashMap<>(idfVector);
+        return idfVector;
     }
     
     /**
@@ -235,14 +323,11 @@ public class TFIDFCalculator {
      */
     public Map<Integer, Double> calculateTFIDFVector(int documentIndex, TFFormula tfFormula, IDFFormula idfFormula) {
         Map<Integer, Double> tfVector = getTFVector(documentIndex, tfFormula);
-        Map<Integer, Double> idfVector = getIDFVector(idfFormula);
         
         Map<Integer, Double> tfidfVector = new HashMap<>();
         for (Map.Entry<Integer, Double> entry : tfVector.entrySet()) {
             int termIndex = entry.getKey();
-            double tf = entry.getValue();
-            double idf = idfVector.getOrDefault(termIndex, 0.0);
-            tfidfVector.put(termIndex, tf * idf);
+            tfidfVector.put(termIndex, entry.getValue() * getIDF(termIndex, idfFormula));
         }
         
         return tfidfVector;
@@ -290,7 +375,11 @@ public class TFIDFCalculator {
      * Get document frequency for a term
      */
     public int getDocumentFrequency(String token) {
-        return documentFrequencies.getOrDefault(token, 0);
+        if (corpus == null) {
+            return 0;
+        }
+        int term = corpus.indexOf(token);
+        return term >= 0 ? statistics.getDocumentFrequency(term) : 0;
     }
     
     /**
@@ -298,7 +387,8 @@ public class TFIDFCalculator {
      */
     public int getDocumentFrequency(int termIndex) {
         if (termIndex >= 0 && termIndex < vocabulary.getSize()) {
-            return getDocumentFrequency(vocabulary.getToken(termIndex));
+            int term = vocabularyTerms[termIndex];
+            return term >= 0 ? statistics.getDocumentFrequency(term) : 0;
         }
         return 0;
     }
@@ -307,8 +397,9 @@ public class TFIDFCalculator {
      * Get raw term count in a specific document
      */
     public int getTermCount(int documentIndex, String token) {
-        if (documentIndex >= 0 && documentIndex < documentTermCounts.size()) {
-            return documentTermCounts.get(documentIndex).getOrDefault(token, 0);
+        if (documentIndex >= 0 && documentIndex < totalDocuments) {
+            int term = corpus.indexOf(token);
+            return term >= 0 ? statistics.getTermCount(documentIndex, term) : 0;
         }
         return 0;
     }
@@ -317,8 +408,8 @@ public class TFIDFCalculator {
      * Get total terms in a document
      */
     public int getTotalTermsInDocument(int documentIndex) {
-        if (documentIndex >= 0 && documentIndex < documentTotalTerms.size()) {
-            return documentTotalTerms.get(documentIndex);
+        if (documentIndex >= 0 && documentIndex < totalDocuments) {
+            return statistics.getTotalTerms(documentIndex);
         }
         return 0;
     }
@@ -327,9 +418,16 @@ public class TFIDFCalculator {
      * Get max term count in a document
      */
     public int getMaxTermCountInDocument(int documentIndex) {
-        if (documentIndex >= 0 && documentIndex < documentMaxTermCounts.size()) {
-            return documentMaxTermCounts.get(documentIndex);
+        if (documentIndex >= 0 && documentIndex < totalDocuments) {
+            return statistics.getMaxTermCount(documentIndex);
         }
         return 0;
     }
+    
+    /**
+     * Corpus statistics the calculator was fitted from (null before fitting)
+     */
+    public CorpusStatistics getCorpusStatistics() {
+        return statistics;
+    }
 }
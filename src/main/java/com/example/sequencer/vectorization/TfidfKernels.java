@@ -0,0 +1,174 @@
+package com.example.sequencer.vectorization;
+
+import com.example.sequencer.model.CorpusStatistics;
+
+/**
+ * TfidfKernels - Batch TF, IDF and TF-IDF evaluation over primitive arrays
+ * Each kernel resolves the formula once and then runs one flat loop over the CSR
+ * count arrays, instead of an enum switch per (term, document). Logarithms are
+ * evaluated once per distinct count or document frequency and looked up afterwards.
+ *
+ * Results are bit-identical to {@link TFFormula#calculate(int, int, int)} and
+ * {@link IDFFormula#calculate(int, int, int)}.
+ */
+public final class TfidfKernels {
+
+    /** K used by {@link TFFormula#DOUBLE_NORMALIZATION_K}, as in TFFormula.calculate */
+    public static final double DEFAULT_K = 0.5;
+
+    private TfidfKernels() {
+    }
+
+    /**
+     * TF of every stored count of the corpus statistics
+     * @param formula TF formula
+     * @param statistics Corpus statistics (CSR counts)
+     * @param out Output aligned with the CSR count positions, or null to allocate
+     * @return The output array
+     */
+    public static double[] termFrequencies(TFFormula formula, CorpusStatistics statistics, double[] out) {
+        return termFrequencies(formula, statistics.getDocumentTermOffsets(), statistics.getDocumentTermCounts(),
+                statistics.getCorpus().getLengths(), statistics.getMaxTermCounts(), DEFAULT_K, out);
+    }
+
+    /**
+     * TF of every count of a CSR count matrix
+     * @param formula TF formula
+     * @param indptr Row pointers (documentCount + 1 entries)
+     * @param counts Raw term counts
+     * @param totalTerms Total terms of each document
+     * @param maxTermCounts Max term count of each document
+     * @param k K for DOUBLE_NORMALIZATION_K
+     * @param out Output aligned with counts, or null to allocate
+     * @return The output array
+     */
+    public static double[] termFrequencies(TFFormula formula, int[] indptr, int[] counts,
+                                           int[] totalTerms, int[] maxTermCounts, double k, double[] out) {
+        double[] values = out != null ? out : new double[counts.length];
+        int documents = indptr.length - 1;
+
+        switch (formula) {
+            case BINARY:
+                for (int j = 0; j < indptr[documents]; j++) {
+                    values[j] = counts[j] > 0 ? 1.0 : 0.0;
+                }
+                break;
+
+            case RAW_COUNT:
+                for (int j = 0; j < indptr[documents]; j++) {
+                    values[j] = counts[j];
+                }
+                break;
+
+            case TERM_FREQUENCY:
+                for (int d = 0; d < documents; d++) {
+                    int total = totalTerms[d];
+                    for (int j = indptr[d]; j < indptr[d + 1]; j++) {
+                        values[j] = total > 0 ? (double) counts[j] / total : 0.0;
+                    }
+                }
+                break;
+
+            case LOG_NORMALIZATION:
+                // log(1 + f) chỉ tính một lần cho mỗi giá trị f khác nhau
+                int maxCount = 0;
+                for (int d = 0; d < documents; d++) {
+                    maxCount = Math.max(maxCount, maxTermCounts[d]);
+                }
+                double[] logTable = new double[maxCount + 1];
+                for (int c = 0; c <= maxCount; c++) {
+                    logTable[c] = Math.log(1.0 + c);
+                }
+                for (int j = 0; j < indptr[documents]; j++) {
+                    values[j] = logTable[counts[j]];
+                }
+                break;
+
+            case DOUBLE_NORMALIZATION_05:
+                for (int d = 0; d < documents; d++) {
+                    int max = maxTermCounts[d];
+                    for (int j = indptr[d]; j < indptr[d + 1]; j++) {
+                        values[j] = max > 0 ? 0.5 + 0.5 * ((double) counts[j] / max) : 0.0;
+                    }
+                }
+                break;
+
+            case DOUBLE_NORMALIZATION_K:
+                for (int d = 0; d < documents; d++) {
+                    int max = maxTermCounts[d];
+                    for (int j = indptr[d]; j < indptr[d + 1]; j++) {
+                        values[j] = max > 0 ? k + (1.0 - k) * ((double) counts[j] / max) : 0.0;
+                    }
+                }
+                break;
+
+            default:
+                for (int d = 0; d < documents; d++) {
+                    for (int j = indptr[d]; j < indptr[d + 1]; j++) {
+                        values[j] = formula.calculate(counts[j], totalTerms[d], maxTermCounts[d], k);
+                    }
+                }
+        }
+        return values;
+    }
+
+    /**
+     * IDF of every term from its document frequency
+     * The formula is evaluated once per distinct document frequency.
+     * @param formula IDF formula
+     * @param documentFrequencies Document frequency of each term
+     * @param totalDocuments Total number of documents (N)
+     * @param maxDocumentFrequency Maximum document frequency among all terms
+     * @param out Output aligned with documentFrequencies, or null to allocate
+     * @return The output array
+     */
+    public static double[] inverseDocumentFrequencies(IDFFormula formula, int[] documentFrequencies,
+                                                      int totalDocuments, int maxDocumentFrequency, double[] out) {
+        double[] values = out != null ? out : new double[documentFrequencies.length];
+        int maxSeen = maxDocumentFrequency;
+        for (int df : documentFrequencies) {
+            maxSeen = Math.max(maxSeen, df);
+        }
+
+        double[] byFrequency = new double[maxSeen + 1];
+        for (int df = 0; df <= maxSeen; df++) {
+            byFrequency[df] = formula.calculate(totalDocuments, df, maxDocumentFrequency);
+        }
+        for (int t = 0; t < documentFrequencies.length; t++) {
+            values[t] = byFrequency[documentFrequencies[t]];
+        }
+        return values;
+    }
+
+    /**
+     * TF-IDF of every stored count for one formula combination
+     * @param tfFormula TF formula
+     * @param idfFormula IDF formula
+     * @param statistics Corpus statistics (CSR counts and document frequencies)
+     * @param out Output aligned with the CSR count positions, or null to allocate
+     * @return The output array
+     */
+    public static double[] tfidf(TFFormula tfFormula, IDFFormula idfFormula,
+                                 CorpusStatistics statistics, double[] out) {
+        double[] idfByTerm = inverseDocumentFrequencies(idfFormula, statistics.getDocumentFrequencies(),
+                statistics.getDocumentCount(), statistics.getMaxDocumentFrequency(), null);
+        double[] values = termFrequencies(tfFormula, statistics, out);
+        return multiplyByTerm(values, statistics.getDocumentTerms(), idfByTerm, values);
+    }
+
+    /**
+     * Multiply each TF value by the IDF of its term: out[j] = tf[j] × idf[terms[j]]
+     * @param tf TF values
+     * @param terms Term id of each value
+     * @param idfByTerm IDF indexed by term id
+     * @param out Output (may be tf itself), or null to allocate
+     * @return The output array
+     */
+    public static double[] multiplyByTerm(double[] tf, int[] terms, double[] idfByTerm, double[] out) {
+        double[] values = out != null ? out : new double[tf.length];
+        for (int j = 0; j < terms.length; j++) {
+            values[j] = tf[j] * idfByTerm[terms[j]];
+        }
+        return values;
+    }
+}
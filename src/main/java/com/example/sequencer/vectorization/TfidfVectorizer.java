@@ -1,5 +1,9 @@
 package com.example.sequencer.vectorization;
 
+import com.example.sequencer.model.ColumnarCorpus;
+import com.example.sequencer.model.CorpusStatistics;
+import com.example.sequencer.model.SparseMatrix;
+
 import java.util.*;
 
 /**
@@ -21,6 +25,8 @@ public class TfidfVectorizer {
     private final Map<String, Integer> vocabularyIndex;
     private final Map<String, Double> idfScores;
     private final boolean useSublinearTf;
+    // Ánh xạ term id → feature và IDF của bộ thống kê gần nhất, dùng chung cho mọi khoảng tài liệu
+    private volatile Prepared prepared;
     
     public TfidfVectorizer() {
         this(false);
@@ -65,15 +71,55 @@ public class TfidfVectorizer {
         
         for (String token : vocabulary) {
             int docFreq = documentFrequency.getOrDefault(token, 0);
-            // IDF formula: log(N / df) with smoothing to avoid division by zero
-            // Using log((N + 1) / (df + 1)) + 1 for smooth-idf (sklearn default)
-            double idf = Math.log((double) (totalDocuments + 1) / (docFreq + 1)) + 1.0;
-            idfScores.put(token, idf);
+            idfScores.put(token, smoothIdf(totalDocuments, docFreq));
+        }
+        prepared = null;
+        
+        System.out.println("TF-IDF vocabulary fitted: " + vocabulary.size() + " unique features");
+    }
+    
+    /**
+     * Fit the vectorizer on a columnar corpus
+     * @param corpus Columnar corpus
+     */
+    public void fit(ColumnarCorpus corpus) {
+        fit(CorpusStatistics.of(corpus));
+    }
+    
+    /**
+     * Fit the vectorizer from precomputed corpus statistics
+     * Corpus term ids are already in first-appearance order, so they become the feature indices.
+     * @param statistics Shared corpus statistics
+     */
+    public void fit(CorpusStatistics statistics) {
+        ColumnarCorpus corpus = statistics.getCorpus();
+        int index = vocabulary.size();
+        for (String term : corpus.getTerms()) {
+            if (!vocabularyIndex.containsKey(term)) {
+                vocabulary.add(term);
+                vocabularyIndex.put(term, index++);
+            }
         }
         
+        int totalDocuments = statistics.getDocumentCount();
+        for (int t = 0; t < corpus.getDistinctTermCount(); t++) {
+            idfScores.put(corpus.getTerm(t), smoothIdf(totalDocuments, statistics.getDocumentFrequency(t)));
+        }
+        prepared = null;
+        
         System.out.println("TF-IDF vocabulary fitted: " + vocabulary.size() + " unique features");
     }
     
+    /**
+     * Smooth IDF used by both fit methods: log((N + 1) / (df + 1)) + 1 (sklearn default)
+     * @param totalDocuments Total number of documents (N)
+     * @param documentFrequency Documents containing the term (df)
+     * @return IDF score
+     */
+    public static double smoothIdf(int totalDocuments, int documentFrequency) {
+        return Math.log((double) (totalDocuments + 1) / (documentFrequency + 1)) + 1.0;
+    }
+    
     /**
      * Transform documents to TF-IDF vectors
      * Optimized for large batches
@@ -91,6 +137,93 @@ public class TfidfVectorizer {
         return tfidfVectors;
     }
     
+    /**
+     * Transform a columnar corpus to TF-IDF vectors
+     * @param corpus Columnar corpus
+     * @return L2-normalized TF-IDF vectors as a CSR matrix (one row per document)
+     */
+    public SparseMatrix transform(ColumnarCorpus corpus) {
+        return transform(CorpusStatistics.of(corpus));
+    }
+    
+    /**
+     * Transform to TF-IDF vectors from precomputed corpus statistics
+     * @param statistics Shared corpus statistics
+     * @return L2-normalized TF-IDF vectors as a CSR matrix (one row per document)
+     */
+    public SparseMatrix transform(CorpusStatistics statistics) {
+        return transform(statistics, 0, statistics.getDocumentCount());
+    }
+    
+    /**
+     * Transform a range of documents; ranges can be transformed concurrently and stacked
+     * @param statistics Shared corpus statistics
+     * @param fromDocument First document (inclusive)
+     * @param toDocument Last document (exclusive)
+     * @return L2-normalized TF-IDF vectors of the range as a CSR matrix
+     */
+    public SparseMatrix transform(CorpusStatistics statistics, int fromDocument, int toDocument) {
+        Prepared current = prepared(statistics);
+        int[] featureOf = current.featureOf;
+        double[] idfOf = current.idfOf;
+        int[] termOffsets = statistics.getDocumentTermOffsets();
+        int[] terms = statistics.getDocumentTerms();
+        int[] counts = statistics.getDocumentTermCounts();
+        SparseMatrix.Builder matrix = new SparseMatrix.Builder(vocabulary.size(),
+                termOffsets[toDocument] - termOffsets[fromDocument]);
+        
+        for (int d = fromDocument; d < toDocument; d++) {
+            int totalTerms = statistics.getTotalTerms(d);
+            for (int j = termOffsets[d]; j < termOffsets[d + 1]; j++) {
+                int term = terms[j];
+                if (featureOf[term] < 0) {
+                    continue;
+                }
+                double tf = useSublinearTf ? 1.0 + Math.log(counts[j]) : (double) counts[j] / totalTerms;
+                matrix.add(featureOf[term], tf * idfOf[term]);
+            }
+            
+            // L2 normalization
+            matrix.normalizeRowL2().endRow();
+        }
+        
+        return matrix.build();
+    }
+    
+    /**
+     * Map corpus term ids to feature indices and IDF (-1 for terms outside the vocabulary)
+     * Done once per fit and statistics; call before transforming ranges concurrently,
+     * otherwise the first range transform does it.
+     * @param statistics Shared corpus statistics
+     */
+    public void prepare(CorpusStatistics statistics) {
+        prepared(statistics);
+    }
+    
+    private Prepared prepared(CorpusStatistics statistics) {
+        Prepared current = prepared;
+        if (current != null && current.statistics == statistics) {
+            return current;
+        }
+        synchronized (this) {
+            current = prepared;
+            if (current == null || current.statistics != statistics) {
+                ColumnarCorpus corpus = statistics.getCorpus();
+                int termCount = corpus.getDistinctTermCount();
+                int[] featureOf = new int[termCount];
+                double[] idfOf = new double[termCount];
+                for (int t = 0; t < termCount; t++) {
+                    String term = corpus.getTerm(t);
+                    featureOf[t] = vocabularyIndex.getOrDefault(term, -1);
+                    idfOf[t] = idfScores.getOrDefault(term, 1.0);
+                }
+                current = new Prepared(statistics, featureOf, idfOf);
+                prepared = current;
+            }
+            return current;
+        }
+    }
+    
     /**
      * Transform a single document to TF-IDF vector
      * @param tokens List of tokens
@@ -230,4 +363,16 @@ public class TfidfVectorizer {
         
         return stats;
     }
+    
+    private static final class Prepared {
+        final CorpusStatistics statistics;
+        final int[] featureOf;
+        final double[] idfOf;
+        
+        Prepared(CorpusStatistics statistics, int[] featureOf, double[] idfOf) {
+            this.statistics = statistics;
+            this.featureOf = featureOf;
+            this.idfOf = idfOf;
+        }
+    }
 }